@@ -0,0 +1,175 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.classes.resources.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.ResourceClassLoaderFactory_VERSION;
+import org.jetbrains.classes.resources.ResourceClassLoaderHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Bootstrap of the packed {@code ResourceClassLoaderFactory_VERSION}: the first call
+ * unpacks runtime classes from the embedded archive, next calls should only create a loader.
+ *
+ * The packed jar is assembled from module outputs the same way the {@code packed} artifact does
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(3)
+public class BootstrapBenchmark {
+  private static final String FACTORY = ResourceClassLoaderFactory_VERSION.class.getName();
+  private static final String ARCHIVE = FACTORY.replace('.', '/') + ".jonnyzzz";
+
+  private File myJar;
+  private Method myWarmFactory;
+  private URL[] myResources;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    final ZipOutputStream runtime = new ZipOutputStream(archive);
+    for (Map.Entry<String, byte[]> e : classFiles(ResourceClassLoaderHelper.class).entrySet()) {
+      putEntry(runtime, e.getKey(), e.getValue());
+    }
+    runtime.close();
+
+    myJar = File.createTempFile("packed-", ".jar");
+    myJar.deleteOnExit();
+    final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(myJar));
+    try {
+      for (Map.Entry<String, byte[]> e : classFiles(ResourceClassLoaderFactory_VERSION.class).entrySet()) {
+        if (!e.getKey().startsWith(FACTORY.replace('.', '/'))) continue;
+        putEntry(zos, e.getKey(), e.getValue());
+      }
+      putEntry(zos, ARCHIVE, archive.toByteArray());
+    } finally {
+      zos.close();
+    }
+
+    myResources = new URL[]{myJar.toURI().toURL()};
+    myWarmFactory = factory(new URLClassLoader(new URL[]{myJar.toURI().toURL()}, null));
+    myWarmFactory.invoke(null, getClass().getClassLoader(), myResources);
+  }
+
+  @TearDown(Level.Trial)
+  public void cleanup() {
+    //noinspection ResultOfMethodCallIgnored
+    myJar.delete();
+  }
+
+  /**
+   * A new copy of the packed factory for every call, runtime classes are unpacked and defined
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 50)
+  public ClassLoader firstLoader() throws Exception {
+    final Method factory = factory(new URLClassLoader(new URL[]{myJar.toURI().toURL()}, null));
+    return (ClassLoader) factory.invoke(null, getClass().getClassLoader(), myResources);
+  }
+
+  /**
+   * The factory was already used, runtime classes and the helper method are reused
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @Warmup(iterations = 5, time = 1)
+  @Measurement(iterations = 10, time = 1)
+  public ClassLoader nextLoader() throws Exception {
+    return (ClassLoader) myWarmFactory.invoke(null, getClass().getClassLoader(), myResources);
+  }
+
+  @NotNull
+  private static Method factory(@NotNull final ClassLoader packed) throws Exception {
+    return packed.loadClass(FACTORY).getMethod("forResources", ClassLoader.class, URL[].class);
+  }
+
+  /**
+   * @return class files of the module or the jar the class was loaded from
+   */
+  @NotNull
+  private static Map<String, byte[]> classFiles(@NotNull final Class<?> anchor) throws Exception {
+    final File root = new File(anchor.getProtectionDomain().getCodeSource().getLocation().toURI());
+    final Map<String, byte[]> result = new TreeMap<String, byte[]>();
+    if (root.isDirectory()) {
+      collect(root, "", result);
+      return result;
+    }
+
+    final JarInputStream jis = new JarInputStream(new FileInputStream(root));
+    try {
+      JarEntry je;
+      while ((je = jis.getNextJarEntry()) != null) {
+        if (!je.getName().endsWith(".class")) continue;
+        result.put(je.getName(), readAll(jis));
+      }
+    } finally {
+      jis.close();
+    }
+    return result;
+  }
+
+  private static void collect(@NotNull final File dir,
+                              @NotNull final String prefix,
+                              @NotNull final Map<String, byte[]> result) throws IOException {
+    final File[] files = dir.listFiles();
+    if (files == null) return;
+    for (File file : files) {
+      if (file.isDirectory()) {
+        collect(file, prefix + file.getName() + "/", result);
+      } else if (file.getName().endsWith(".class")) {
+        final InputStream is = new FileInputStream(file);
+        try {
+          result.put(prefix + file.getName(), readAll(is));
+        } finally {
+          is.close();
+        }
+      }
+    }
+  }
+
+  @NotNull
+  private static byte[] readAll(@NotNull final InputStream is) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final byte[] buff = new byte[8192];
+    int x;
+    while ((x = is.read(buff)) > 0) bos.write(buff, 0, x);
+    return bos.toByteArray();
+  }
+
+  private static void putEntry(@NotNull final ZipOutputStream zos,
+                               @NotNull final String name,
+                               @NotNull final byte[] data) throws IOException {
+    zos.putNextEntry(new ZipEntry(name));
+    zos.write(data);
+    zos.closeEntry();
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.benchmarks;
+
+import org.jetbrains.classes.resources.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent loading of classes by a shared {@link ResourceClassLoader},
+ * every thread loads its own share of the corpus.
+ * Use {@code -t N} to change the number of threads
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(3)
+@Threads(4)
+public class ContentionBenchmark {
+  @Param({"4000"})
+  public int classes;
+
+  private byte[] myJar;
+  private List<String> myClasses;
+  private volatile ResourceClassLoader myLoader;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    final JarCorpus corpus = new JarCorpus(42).setClasses(classes).setPackages(3, 10);
+    myJar = corpus.generate();
+    myClasses = corpus.getClassNames();
+  }
+
+  @Setup(Level.Iteration)
+  public void createLoader() throws IOException {
+    final ResourceClasspath classpath = new ResourceClasspath();
+    classpath.addResource(new BytesResource("corpus.jar", myJar));
+    myLoader = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, getClass().getClassLoader(), classpath);
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeLoader() {
+    myLoader.close();
+  }
+
+  @Benchmark
+  public int loadClasses(final ThreadParams thread) throws ClassNotFoundException {
+    final ResourceClassLoader loader = myLoader;
+    final int step = thread.getThreadCount();
+    int hash = 0;
+    for (int i = thread.getThreadIndex(); i < myClasses.size(); i += step) {
+      hash += loader.loadClass(myClasses.get(i)).hashCode();
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.benchmarks;
+
+import org.jetbrains.classes.resources.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delegation overhead of {@link ResourceClassLoader#loadClass(String)} for
+ * a class of the parent, an already loaded class and a missing class
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DelegationBenchmark {
+  @Param({"CALL_PARENT_FIRST", "CALL_SELF_FIRST", "ROUTE_BY_PACKAGE"})
+  public Delegation delegation;
+
+  @Param({"false", "true"})
+  public boolean cacheParentMisses;
+
+  private ResourceClassLoader myLoader;
+  private String myLoaded;
+  private String myMissing;
+
+  @Setup
+  public void setup() throws IOException, ClassNotFoundException {
+    final JarCorpus corpus = new JarCorpus(42).setClasses(1000);
+    final ResourceClasspath classpath = new ResourceClasspath();
+    classpath.addResource(new BytesResource("corpus.jar", corpus.generate()));
+
+    myLoader = new ResourceClassLoader(delegation, getClass().getClassLoader(), classpath);
+    myLoader.setCacheParentMisses(cacheParentMisses);
+
+    myLoaded = corpus.getClassNames().get(0);
+    myLoader.loadClass(myLoaded);
+    myMissing = myLoaded + "Missing";
+  }
+
+  @TearDown
+  public void tearDown() {
+    myLoader.close();
+  }
+
+  @Benchmark
+  public Class<?> parentClass() throws ClassNotFoundException {
+    return myLoader.loadClass("java.util.ArrayList");
+  }
+
+  @Benchmark
+  public Class<?> loadedClass() throws ClassNotFoundException {
+    return myLoader.loadClass(myLoaded);
+  }
+
+  @Benchmark
+  public Object missingClass() {
+    try {
+      return myLoader.loadClass(myMissing);
+    } catch (ClassNotFoundException e) {
+      return e;
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.BytesResource;
+import org.jetbrains.classes.resources.entry.*;
+import org.jetbrains.classes.resources.util.Streams;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Reads of a single {@link ResourceEntry} of every storage type.
+ * Run with {@code -prof gc} to see allocations per read
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EntryBenchmark {
+  public enum Type {
+    BYTES, GZIP, SIZED_GZIP, DEFLATED, BUFFER, GZIP_BUFFER, SCAN, COMPOSITE
+  }
+
+  @Param({"BYTES", "GZIP", "SIZED_GZIP", "DEFLATED", "BUFFER", "GZIP_BUFFER", "SCAN", "COMPOSITE"})
+  public Type type;
+
+  @Param({"1000", "30000"})
+  public int size;
+
+  private ResourceEntry myEntry;
+  private final byte[] myBuffer = new byte[8192];
+
+  @Setup
+  public void setup() throws IOException {
+    //class files compress roughly 2x, half of the bytes are random
+    final byte[] data = new byte[size];
+    new Random(42).nextBytes(data);
+    for (int i = 0; i < data.length; i += 2) data[i] = (byte) (i % 7);
+
+    myEntry = createEntry(data);
+  }
+
+  @NotNull
+  private ResourceEntry createEntry(@NotNull final byte[] data) throws IOException {
+    switch (type) {
+      case BYTES:
+        return new BytesEntry(data);
+      case GZIP:
+        return new GZipResourceEntry(Streams.gzip(data, 0, data.length));
+      case SIZED_GZIP:
+        return new SizedGZipResourceEntry(data.length, Streams.gzip(data, 0, data.length));
+      case DEFLATED:
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        return new DeflatedEntry(data.length, (int) crc.getValue(), deflate(data));
+      case BUFFER:
+        return new BufferEntry(direct(data));
+      case GZIP_BUFFER:
+        return new GZipBufferEntry(data.length, direct(Streams.gzip(data, 0, data.length)));
+      case SCAN:
+        final String name = "a/b/C.class";
+        return new ScanEntry(new BytesResource("entry.jar", new JarCorpus(42).jar(name, data)), name);
+      case COMPOSITE:
+        return new CompositeEntry(new BytesEntry(data), new BytesEntry(data));
+      default:
+        throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+  }
+
+  @Benchmark
+  public byte[] getBytes() throws IOException {
+    return myEntry.getBytes();
+  }
+
+  @Benchmark
+  public ByteBuffer getBuffer() throws IOException {
+    return myEntry.getBuffer();
+  }
+
+  @Benchmark
+  public int getStream() throws IOException {
+    final InputStream stream = myEntry.getStream();
+    try {
+      int size = 0;
+      int x;
+      while ((x = stream.read(myBuffer)) > 0) size += x;
+      return size;
+    } finally {
+      stream.close();
+    }
+  }
+
+  @NotNull
+  private static ByteBuffer direct(@NotNull final byte[] data) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+    buffer.put(data).flip();
+    return buffer.asReadOnlyBuffer();
+  }
+
+  @NotNull
+  private static byte[] deflate(@NotNull final byte[] data) {
+    final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      final byte[] result = new byte[data.length + 1024];
+      int size = 0;
+      while (!deflater.finished()) {
+        size += deflater.deflate(result, size, result.length - size);
+      }
+      final byte[] copy = new byte[size];
+      System.arraycopy(result, 0, copy, 0, size);
+      return copy;
+    } finally {
+      deflater.end();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexing of a jar with {@link ResourceClasspath#addResource(ResourceHolder)}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class IndexBenchmark {
+  @Param({"1000", "10000"})
+  public int classes;
+
+  @Param({"EAGER", "LAZY", "RAW"})
+  public Ingestion ingestion;
+
+  /**
+   * in-memory jar or a memory-mapped file
+   */
+  @Param({"bytes", "file"})
+  public String source;
+
+  private byte[] myJar;
+  private File myFile;
+
+  @Setup
+  public void setup() throws IOException {
+    myJar = new JarCorpus(42).setClasses(classes).setResources(classes / 10).setLargeResources(2).generate();
+    myFile = writeTemp(myJar);
+  }
+
+  @TearDown
+  public void tearDown() {
+    //noinspection ResultOfMethodCallIgnored
+    myFile.delete();
+  }
+
+  @Benchmark
+  public ResourceClasspath addResource() throws IOException {
+    final ResourceClasspath cp = new ResourceClasspath(ingestion);
+    cp.addResource("file".equals(source) ? new FileResource(myFile) : new BytesResource("corpus.jar", myJar));
+    return cp;
+  }
+
+  @NotNull
+  static File writeTemp(@NotNull final byte[] jar) throws IOException {
+    final File file = File.createTempFile("corpus", ".jar");
+    file.deleteOnExit();
+    final FileOutputStream fos = new FileOutputStream(file);
+    try {
+      fos.write(jar);
+    } finally {
+      fos.close();
+    }
+    return file;
+  }
+}
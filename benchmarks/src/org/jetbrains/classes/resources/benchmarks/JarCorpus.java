@@ -0,0 +1,301 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates reproducible jars for benchmarks, so results do not depend on {@code lib/}.
+ *
+ * A jar contains valid (empty) classes and resources in packages of the given depth.
+ * Sizes of entries are picked uniformly from the range, the content is as compressible
+ * as usual class files and texts. Jars of the same corpus with different variants share
+ * all names, but not the content, that makes duplicates for {@code CompositeEntry}
+ */
+public class JarCorpus {
+  private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_$;()/<>";
+
+  private final long mySeed;
+  private int myClasses = 1000;
+  private int myResources = 100;
+  private int myLargeResources = 0;
+  private int myMinSize = 64;
+  private int myMaxSize = 4096;
+  private int myDepth = 3;
+  private int myPackages = 20;
+  private boolean myCompressed = true;
+
+  private List<String> myClassNames;
+  private List<String> myResourceNames;
+
+  public JarCorpus(final long seed) {
+    mySeed = seed;
+  }
+
+  @NotNull
+  public JarCorpus setClasses(final int classes) {
+    myClasses = classes;
+    return reset();
+  }
+
+  @NotNull
+  public JarCorpus setResources(final int resources) {
+    myResources = resources;
+    return reset();
+  }
+
+  /**
+   * @param largeResources number of resources above {@code Streams.CACHE_SIZE}, that are never cached in memory
+   */
+  @NotNull
+  public JarCorpus setLargeResources(final int largeResources) {
+    myLargeResources = largeResources;
+    return reset();
+  }
+
+  @NotNull
+  public JarCorpus setSizes(final int minSize, final int maxSize) {
+    if (minSize < 0 || maxSize < minSize || maxSize > 60000) throw new IllegalArgumentException("Unsupported sizes: " + minSize + ".." + maxSize);
+    myMinSize = minSize;
+    myMaxSize = maxSize;
+    return this;
+  }
+
+  /**
+   * @param depth number of package segments of every name
+   * @param packages number of packages
+   */
+  @NotNull
+  public JarCorpus setPackages(final int depth, final int packages) {
+    myDepth = depth;
+    myPackages = packages;
+    return reset();
+  }
+
+  /**
+   * @param compressed deflate entries or store them as is
+   */
+  @NotNull
+  public JarCorpus setCompressed(final boolean compressed) {
+    myCompressed = compressed;
+    return this;
+  }
+
+  /**
+   * @return binary names of the generated classes, e.g. {@code p0.p1.C12}
+   */
+  @NotNull
+  public List<String> getClassNames() {
+    generateNames();
+    return Collections.unmodifiableList(myClassNames);
+  }
+
+  /**
+   * @return names of the generated resources, including the large ones
+   */
+  @NotNull
+  public List<String> getResourceNames() {
+    generateNames();
+    return Collections.unmodifiableList(myResourceNames);
+  }
+
+  /**
+   * @return resource name of a class file, e.g. {@code p0/p1/C12.class}
+   */
+  @NotNull
+  public static String classResource(@NotNull final String className) {
+    return className.replace('.', '/') + ".class";
+  }
+
+  @NotNull
+  public byte[] generate() throws IOException {
+    return generate(0);
+  }
+
+  /**
+   * @param variant jars of different variants have the same names and different content
+   */
+  @NotNull
+  public byte[] generate(final int variant) throws IOException {
+    generateNames();
+
+    final Random random = new Random(mySeed * 31 + variant);
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final ZipOutputStream zos = new ZipOutputStream(bos);
+    zos.setMethod(myCompressed ? ZipEntry.DEFLATED : ZipEntry.STORED);
+
+    for (String name : myClassNames) {
+      final String internalName = name.replace('.', '/');
+      putEntry(zos, internalName + ".class", classFile(internalName, text(random, size(random))));
+    }
+
+    for (int i = 0; i < myResourceNames.size(); i++) {
+      final int large = myResourceNames.size() - myLargeResources;
+      final byte[] data = i < large
+              ? text(random, size(random)).getBytes("utf-8")
+              : bytes(random, 3 * 256 * 1024 + random.nextInt(1024));
+      putEntry(zos, myResourceNames.get(i), data);
+    }
+
+    zos.close();
+    return bos.toByteArray();
+  }
+
+  /**
+   * @return a jar with the only entry
+   */
+  @NotNull
+  public byte[] jar(@NotNull final String name, @NotNull final byte[] data) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final ZipOutputStream zos = new ZipOutputStream(bos);
+    zos.setMethod(myCompressed ? ZipEntry.DEFLATED : ZipEntry.STORED);
+    putEntry(zos, name, data);
+    zos.close();
+    return bos.toByteArray();
+  }
+
+  @NotNull
+  private JarCorpus reset() {
+    myClassNames = null;
+    myResourceNames = null;
+    return this;
+  }
+
+  private void generateNames() {
+    if (myClassNames != null) return;
+
+    final Random random = new Random(mySeed);
+    final List<String> packages = new ArrayList<String>(myPackages);
+    for (int i = 0; i < myPackages; i++) {
+      final StringBuilder sb = new StringBuilder();
+      for (int d = 0; d < myDepth; d++) {
+        if (d > 0) sb.append('.');
+        sb.append(d == myDepth - 1 ? "p" + i : "p" + d + "x" + random.nextInt(3));
+      }
+      packages.add(sb.toString());
+    }
+
+    final List<String> classes = new ArrayList<String>(myClasses);
+    for (int i = 0; i < myClasses; i++) {
+      final String pkg = packages.isEmpty() ? "" : packages.get(random.nextInt(packages.size())) + ".";
+      classes.add(pkg + "C" + i);
+    }
+
+    final List<String> resources = new ArrayList<String>(myResources + myLargeResources);
+    for (int i = 0; i < myResources + myLargeResources; i++) {
+      final String pkg = packages.isEmpty() ? "" : packages.get(random.nextInt(packages.size())).replace('.', '/') + "/";
+      resources.add(pkg + "resource" + i + (i < myResources ? ".txt" : ".bin"));
+    }
+
+    myClassNames = classes;
+    myResourceNames = resources;
+  }
+
+  private int size(@NotNull final Random random) {
+    return myMinSize + random.nextInt(myMaxSize - myMinSize + 1);
+  }
+
+  private void putEntry(@NotNull final ZipOutputStream zos,
+                        @NotNull final String name,
+                        @NotNull final byte[] data) throws IOException {
+    final ZipEntry ze = new ZipEntry(name);
+    if (!myCompressed) {
+      final CRC32 crc = new CRC32();
+      crc.update(data);
+      ze.setSize(data.length);
+      ze.setCompressedSize(data.length);
+      ze.setCrc(crc.getValue());
+    }
+    zos.putNextEntry(ze);
+    zos.write(data);
+    zos.closeEntry();
+  }
+
+  @NotNull
+  private static String text(@NotNull final Random random, final int size) {
+    //words from a small dictionary compress like usual texts and constant pools
+    final StringBuilder sb = new StringBuilder(size);
+    while (sb.length() < size) {
+      final int word = random.nextInt(64);
+      for (int i = 0; i < 3 + word % 9 && sb.length() < size; i++) {
+        sb.append(ALPHABET.charAt((word * 7 + i * 13) % ALPHABET.length()));
+      }
+      if (sb.length() < size) sb.append(' ');
+    }
+    return sb.toString();
+  }
+
+  @NotNull
+  private static byte[] bytes(@NotNull final Random random, final int size) {
+    final byte[] data = new byte[size];
+    random.nextBytes(data);
+    return data;
+  }
+
+  /**
+   * @param internalName name of the class, e.g. {@code a/b/C}
+   * @param padding unused constant to make the class of the given size
+   * @return a class file of an empty public class
+   */
+  @NotNull
+  public static byte[] classFile(@NotNull final String internalName, @NotNull final String padding) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream(padding.length() + 64);
+    final DataOutputStream dos = new DataOutputStream(bos);
+    dos.writeInt(0xCAFEBABE);
+    dos.writeShort(0);
+    //Java 5
+    dos.writeShort(49);
+
+    dos.writeShort(6);
+    //#1 this class
+    dos.writeByte(7);
+    dos.writeShort(2);
+    dos.writeByte(1);
+    dos.writeUTF(internalName);
+    //#3 super class
+    dos.writeByte(7);
+    dos.writeShort(4);
+    dos.writeByte(1);
+    dos.writeUTF("java/lang/Object");
+    //#5 padding
+    dos.writeByte(1);
+    dos.writeUTF(padding);
+
+    //public super
+    dos.writeShort(0x21);
+    dos.writeShort(1);
+    dos.writeShort(3);
+    //interfaces, fields, methods, attributes
+    dos.writeShort(0);
+    dos.writeShort(0);
+    dos.writeShort(0);
+    dos.writeShort(0);
+    dos.close();
+    return bos.toByteArray();
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.benchmarks;
+
+import org.jetbrains.classes.resources.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start: a new {@link ResourceClassLoader} loads every class of the corpus
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(3)
+public class LoadClassBenchmark {
+  @Param({"2000"})
+  public int classes;
+
+  @Param({"CALL_PARENT_FIRST", "CALL_SELF_FIRST", "ROUTE_BY_PACKAGE"})
+  public Delegation delegation;
+
+  @Param({"EAGER", "LAZY"})
+  public Ingestion ingestion;
+
+  private byte[] myJar;
+  private List<String> myClasses;
+  private ResourceClassLoader myLoader;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    final JarCorpus corpus = new JarCorpus(42).setClasses(classes);
+    myJar = corpus.generate();
+    myClasses = corpus.getClassNames();
+  }
+
+  @Setup(Level.Iteration)
+  public void createLoader() throws IOException {
+    final ResourceClasspath classpath = new ResourceClasspath(ingestion);
+    classpath.addResource(new BytesResource("corpus.jar", myJar));
+    myLoader = new ResourceClassLoader(delegation, getClass().getClassLoader(), classpath);
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeLoader() {
+    myLoader.close();
+  }
+
+  @Benchmark
+  public int loadClasses() throws ClassNotFoundException {
+    int hash = 0;
+    for (String name : myClasses) {
+      hash += myLoader.loadClass(name).hashCode();
+    }
+    return hash;
+  }
+}
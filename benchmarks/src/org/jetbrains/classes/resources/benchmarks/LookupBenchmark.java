@@ -0,0 +1,132 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups of an indexed {@link ResourceClasspath}, names are taken round robin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LookupBenchmark {
+  @Param({"EAGER", "LAZY", "RAW"})
+  public Ingestion ingestion;
+
+  @Param({"100", "4000"})
+  public int size;
+
+  /**
+   * Lookups in {@link org.jetbrains.classes.resources.index.FrozenIndex}, see {@link ResourceClasspath#freeze()}
+   */
+  @Param({"false", "true"})
+  public boolean frozen;
+
+  private ResourceClasspath myClasspath;
+  private String[] myClasses;
+  private String[] myResources;
+  private String[] myMissing;
+  private final byte[] myBuffer = new byte[8192];
+  private int myIndex = 0;
+
+  @Setup
+  public void setup() throws IOException {
+    final JarCorpus corpus = new JarCorpus(42).setClasses(5000).setResources(500).setSizes(size / 2, size * 3 / 2);
+
+    myClasspath = new ResourceClasspath(ingestion);
+    //the second jar makes every name a duplicate
+    myClasspath.addResource(new BytesResource("corpus-1.jar", corpus.generate(1)));
+    myClasspath.addResource(new BytesResource("corpus-0.jar", corpus.generate(0)));
+    if (frozen) myClasspath.freeze();
+
+    final List<String> classes = corpus.getClassNames();
+    myClasses = new String[classes.size()];
+    myMissing = new String[classes.size()];
+    for (int i = 0; i < myClasses.length; i++) {
+      myClasses[i] = JarCorpus.classResource(classes.get(i));
+      myMissing[i] = JarCorpus.classResource(classes.get(i) + "Missing");
+    }
+    myResources = corpus.getResourceNames().toArray(new String[0]);
+  }
+
+  @NotNull
+  private String next(@NotNull final String[] names) {
+    final String name = names[myIndex++ % names.length];
+    if (myIndex < 0) myIndex = 0;
+    return name;
+  }
+
+  @Benchmark
+  public byte[] getClassResource() throws IOException {
+    return myClasspath.getClassResource(next(myClasses));
+  }
+
+  @Benchmark
+  public Object findMissingClass() throws IOException {
+    return myClasspath.findClassBuffer(next(myMissing));
+  }
+
+  @Benchmark
+  public int getResourceAsStream() throws IOException {
+    return drain(myClasspath.getResourceAsStream(next(myResources)));
+  }
+
+  /**
+   * URL resolution and a read through the classpath URL handler
+   */
+  @Benchmark
+  public int openURL() throws IOException {
+    return drain(myClasspath.getResourceAsURL(next(myResources)).openStream());
+  }
+
+  /**
+   * All duplicates of a name
+   */
+  @Benchmark
+  public int getResources() throws IOException {
+    int size = 0;
+    final Enumeration<URL> urls = myClasspath.getResources(next(myResources));
+    while (urls.hasMoreElements()) {
+      size += drain(urls.nextElement().openStream());
+    }
+    return size;
+  }
+
+  private int drain(@NotNull final InputStream stream) throws IOException {
+    int size = 0;
+    try {
+      int x;
+      while ((x = stream.read(myBuffer)) > 0) size += x;
+    } finally {
+      stream.close();
+    }
+    return size;
+  }
+}
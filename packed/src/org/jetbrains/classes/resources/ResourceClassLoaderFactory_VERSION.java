@@ -32,10 +32,35 @@ import java.util.zip.ZipInputStream;
  * @author Eugene Petrenko (eugene.petrenko@jetbrains.com)
  */
 public class ResourceClassLoaderFactory_VERSION {
+  private static final String ARCHIVE = "org/jetbrains/classes/resources/ResourceClassLoaderFactory_VERSION.jonnyzzz";
+  private static final String HELPER = "org.jetbrains.classes.resources.ResourceClassLoaderHelper";
+
+  /**
+   * Runtime classes are loaded once and shared by all classloaders of the factory
+   */
+  private static ClazzLoader ourLoader;
+  private static final Map<List<Object>, Method> ourMethods = new HashMap<List<Object>, Method>();
 
   @NotNull
   public static ClassLoader scan(@NotNull final ClassLoader parent,
                                  @NotNull final Scanner scan) {
+    return forResources(parent, readResources(parent, scan));
+  }
+
+  /**
+   * Same as {@link #scan(ClassLoader, Scanner)}, but prefetches classes in background
+   * from the class load profile file, the profile is recorded if the file is missing
+   */
+  @NotNull
+  public static ClassLoader scan(@NotNull final ClassLoader parent,
+                                 @NotNull final Scanner scan,
+                                 @NotNull final File profile) {
+    return forResources(parent, profile, readResources(parent, scan));
+  }
+
+  @NotNull
+  private static URL[] readResources(@NotNull final ClassLoader parent,
+                                     @NotNull final Scanner scan) {
     final List<URL> urls = new ArrayList<URL>();
     while (scan.hasNextLine()) {
       final String line = scan.nextLine().trim();
@@ -45,8 +70,7 @@ public class ResourceClassLoaderFactory_VERSION {
       urls.add(res);
     }
     scan.close();
-
-    return forResources(parent, urls.toArray(new URL[urls.size()]));
+    return urls.toArray(new URL[urls.size()]);
   }
 
   @NotNull
@@ -58,89 +82,126 @@ public class ResourceClassLoaderFactory_VERSION {
   @NotNull
   public static ClassLoader forResources(@NotNull final ClassLoader parent,
                                          @NotNull final URL... resources) {
-    final ClazzLoader cl;
+    return callHelper("forResources", new Class<?>[]{ClassLoader.class, URL[].class}, parent, resources);
+  }
+
+  /**
+   * Same as {@link #forResources(ClassLoader, URL...)}, but classloaders of the same resources
+   * share one indexed classpath, it is released once all of them are closed or collected
+   */
+  @NotNull
+  public static ClassLoader forSharedResources(@NotNull final ClassLoader parent,
+                                               @NotNull final URL... resources) {
+    return callHelper("forSharedResources", new Class<?>[]{ClassLoader.class, URL[].class}, parent, resources);
+  }
+
+  @NotNull
+  public static ClassLoader forResources(@NotNull final ClassLoader parent,
+                                         @NotNull final File profile,
+                                         @NotNull final URL... resources) {
+    return callHelper("forResources", new Class<?>[]{ClassLoader.class, File.class, URL[].class}, parent, profile, resources);
+  }
+
+  @NotNull
+  private static ClassLoader callHelper(@NotNull final String name,
+                                        @NotNull final Class<?>[] types,
+                                        @NotNull final Object... args) {
+    final Method method = getHelperMethod(name, types);
     try {
-      cl = new ClazzLoader();
-    } catch (IOException e) {
-      throw new RuntimeException("Failed to load classes. " + e.getMessage(), e);
+      return (ClassLoader) method.invoke(null, args);
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to create classloader: " + e.getMessage(), e);
+    }
+  }
+
+  @NotNull
+  private static synchronized Method getHelperMethod(@NotNull final String name,
+                                                    @NotNull final Class<?>[] types) {
+    final List<Object> key = new ArrayList<Object>(Arrays.asList(types));
+    key.add(name);
+    final Method cached = ourMethods.get(key);
+    if (cached != null) return cached;
+
+    if (ourLoader == null) {
+      try {
+        ourLoader = new ClazzLoader();
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to load classes. " + e.getMessage(), e);
+      }
     }
 
     final Class<?> helper;
     try {
-      helper = cl.loadClass("org.jetbrains.classes.resources.ResourceClassLoaderHelper");
+      helper = ourLoader.loadClass(HELPER);
     } catch (ClassNotFoundException e) {
       throw new RuntimeException("Failed to load helper class. " + e.getMessage(), e);
     }
 
     final Method method;
     try {
-      method = helper.getMethod("forResources", ClassLoader.class, URL[].class);
+      method = helper.getMethod(name, types);
     } catch (NoSuchMethodException e) {
       throw new RuntimeException("Failed to find helper method. " + e.getMessage(), e);
     }
 
-    try {
-      return (ClassLoader) method.invoke(null, parent, resources);
-    } catch (Exception e) {
-      throw new RuntimeException("Failed to create classloader: " + e.getMessage(), e);
-    }
+    ourMethods.put(key, method);
+    return method;
   }
 
+  /**
+   * Reads runtime classes from the embedded archive, a class is defined on the first request
+   */
   private static class ClazzLoader extends ClassLoader {
     private final Map<String, byte[]> myClasses = new HashMap<String, byte[]>();
 
     public ClazzLoader() throws IOException {
       super(null);
 
-      final ZipInputStream zis = new ZipInputStream(ResourceClassLoaderFactory_VERSION.class.getClassLoader().getResourceAsStream("org/jetbrains/classes/resources/ResourceClassLoaderFactory_VERSION.jonnyzzz"));
+      final InputStream archive = ResourceClassLoaderFactory_VERSION.class.getClassLoader().getResourceAsStream(ARCHIVE);
+      if (archive == null) throw new FileNotFoundException(ARCHIVE);
+
+      final ZipInputStream zis = new ZipInputStream(new BufferedInputStream(archive, 64 * 1024));
       try {
+        final byte[] buff = new byte[64 * 1024];
         ZipEntry ze;
         while ((ze = zis.getNextEntry()) != null) {
           if (ze.isDirectory()) continue;
           final String name = ze.getName();
-
           if (!name.endsWith(".class")) continue;
-          definePackage(name);
-          defineClass(zis, name);
+
+          final String clazz = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+          myClasses.put(clazz, readEntry(zis, ze, buff));
         }
       } finally {
         zis.close();
       }
-
-      //define class may call findClass/loadClass to resolve classes used inside
-      for (String name : new ArrayList<String>(myClasses.keySet())) {
-        final byte[] bytes = myClasses.remove(name);
-        if (bytes == null) continue;
-        defineClazz(name, bytes);
-      }
     }
 
-    private void defineClass(@NotNull final ZipInputStream zis, @NotNull final String name) throws IOException {
-      final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    @NotNull
+    private static byte[] readEntry(@NotNull final ZipInputStream zis,
+                                    @NotNull final ZipEntry ze,
+                                    @NotNull final byte[] buff) throws IOException {
+      final long size = ze.getSize();
+      final ByteArrayOutputStream bos = new ByteArrayOutputStream(size > 0 ? (int) size : buff.length);
       int x;
-      while ((x = zis.read()) >= 0) bos.write(x);
-      bos.close();
-
-      final String clazz = name.substring(0, name.length() - ".class".length()).replace('/', '.');
-      byte[] bytes = bos.toByteArray();
-      myClasses.put(clazz, bytes);
+      while ((x = zis.read(buff)) > 0) bos.write(buff, 0, x);
+      return bos.toByteArray();
     }
 
+    /**
+     * Called under the lock of the loader, the map is not shared with other threads
+     */
     @NotNull
     @Override
     protected Class<?> findClass(@NotNull final String name) throws ClassNotFoundException {
       final byte[] bytes = myClasses.remove(name);
       if (bytes != null) {
-        return defineClazz(name, bytes);
+        definePackage(name);
+        return defineClass(name, bytes, 0, bytes.length);
       }
       return super.findClass(name);
     }
 
-    @NotNull
-    private Class<?> defineClazz(@NotNull final String name, @NotNull final byte[] bytes) {
-      return defineClass(name, bytes, 0, bytes.length);
-    }
-
     private void definePackage(@NotNull final String name) {
       final int i = name.lastIndexOf('.');
       if (i >= 0) {
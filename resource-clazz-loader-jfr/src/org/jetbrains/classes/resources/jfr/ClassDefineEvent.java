@@ -0,0 +1,53 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A class is read from the classpath and defined
+ */
+@Name("org.jetbrains.classes.resources.ClassDefine")
+@Label("Class Define")
+@Description("A class is read from the classpath and defined")
+@Category({"Java Application", "Resource Class Loader"})
+@StackTrace(false)
+public class ClassDefineEvent extends Event {
+  @Label("Class Name")
+  String className;
+
+  @Label("Size")
+  @DataAmount
+  int size;
+
+  @Label("Entry Type")
+  String entryType;
+
+  @Label("Decode Time")
+  @Timespan
+  long decodeTime;
+
+  @Label("Define Time")
+  @Timespan
+  long defineTime;
+
+  @Name("minTime")
+  @SettingDefinition
+  protected boolean minTime(final TimeThreshold threshold) {
+    return threshold.accept(decodeTime + defineTime);
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.jfr;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.ClassLoaderListener;
+import org.jetbrains.classes.resources.Delegation;
+import org.jetbrains.classes.resources.ResourceHolder;
+import org.jetbrains.classes.resources.entry.Entries;
+import org.jetbrains.classes.resources.entry.ResourceEntry;
+import org.jetbrains.classes.resources.entry.ScanEntry;
+
+/**
+ * Emits Flight Recorder events of a loader, e.g.
+ * {@code loader.addListener(new JfrListener())}. Pass the listener to
+ * {@link org.jetbrains.classes.resources.ResourceClassLoaderHelper#forResources(ClassLoader, ClassLoaderListener, java.net.URL...)}
+ * or set it to the classpath before resources are added to see {@link ResourceScanEvent}s.
+ * An event costs an allocation and a flag check while it is disabled,
+ * use {@code minTime} setting of an event to skip fast operations
+ */
+public class JfrListener implements ClassLoaderListener {
+  /**
+   * The loader reads class bytes and defines the class on the same thread
+   */
+  private final ThreadLocal<ClassDefineEvent> myDefines = new ThreadLocal<ClassDefineEvent>();
+
+  @Override
+  public void resourceScanned(@NotNull final ResourceHolder resource, final int entries, final long bytes, final long nanos) {
+    final ResourceScanEvent event = new ResourceScanEvent();
+    if (!event.isEnabled()) return;
+
+    event.jar = resource.getResourceName();
+    event.entries = entries;
+    event.bytes = bytes;
+    event.scanTime = nanos;
+    event.commit();
+  }
+
+  @Override
+  public void classLookup(@NotNull final String name, @NotNull final Delegation.Owner side, final boolean found) {
+  }
+
+  @Override
+  public void entryRead(@NotNull final String name,
+                        @NotNull final ResourceEntry entry,
+                        @NotNull final Read read,
+                        final int size,
+                        final long nanos) {
+    final ResourceEntry data = Entries.unwrap(entry);
+    if (data instanceof ScanEntry) rescan(name, (ScanEntry) data, read, nanos);
+
+    if (read == Read.CLASS) {
+      final ClassDefineEvent event = new ClassDefineEvent();
+      if (!event.isEnabled()) return;
+
+      event.entryType = data.getClass().getSimpleName();
+      event.decodeTime = nanos;
+      myDefines.set(event);
+      return;
+    }
+
+    final ResourceOpenEvent event = new ResourceOpenEvent();
+    if (!event.isEnabled()) return;
+
+    event.resourceName = name;
+    event.read = read.name();
+    event.entryType = data.getClass().getSimpleName();
+    event.size = size;
+    event.openTime = nanos;
+    event.commit();
+  }
+
+  private static void rescan(@NotNull final String name,
+                             @NotNull final ScanEntry entry,
+                             @NotNull final Read read,
+                             final long nanos) {
+    final RescanEvent event = new RescanEvent();
+    if (!event.isEnabled()) return;
+
+    event.resourceName = name;
+    event.jar = entry.getResource().getResourceName();
+    event.read = read.name();
+    event.scanTime = nanos;
+    event.commit();
+  }
+
+  @Override
+  public void classDefined(@NotNull final String name, final int size, final long nanos) {
+    final ClassDefineEvent event = myDefines.get();
+    if (event == null) return;
+    myDefines.remove();
+
+    event.className = name;
+    event.size = size;
+    event.defineTime = nanos;
+    event.commit();
+  }
+
+  @Override
+  public void classDefineFailed(@NotNull final String name) {
+    myDefines.remove();
+  }
+
+  @Override
+  public void entryDeduplicated(@NotNull final String name, final int size) {
+  }
+
+  @Override
+  public void lockWaited(@NotNull final String name, final long nanos) {
+  }
+
+  @Override
+  public void closed() {
+  }
+}
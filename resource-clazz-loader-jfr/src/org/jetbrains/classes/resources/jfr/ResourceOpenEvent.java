@@ -0,0 +1,52 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A resource is read as bytes, a stream or a stream of its URL
+ */
+@Name("org.jetbrains.classes.resources.ResourceOpen")
+@Label("Resource Open")
+@Description("A resource is read as bytes, a stream or a stream of its URL")
+@Category({"Java Application", "Resource Class Loader"})
+@StackTrace(false)
+public class ResourceOpenEvent extends Event {
+  @Label("Resource Name")
+  String resourceName;
+
+  @Label("Read")
+  String read;
+
+  @Label("Entry Type")
+  String entryType;
+
+  @Label("Size")
+  @DataAmount
+  long size;
+
+  @Label("Open Time")
+  @Timespan
+  long openTime;
+
+  @Name("minTime")
+  @SettingDefinition
+  protected boolean minTime(final TimeThreshold threshold) {
+    return threshold.accept(openTime);
+  }
+}
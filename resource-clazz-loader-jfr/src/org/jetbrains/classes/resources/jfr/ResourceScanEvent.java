@@ -0,0 +1,49 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A jar is indexed by the classpath
+ */
+@Name("org.jetbrains.classes.resources.ResourceScan")
+@Label("Jar Ingest")
+@Description("A jar is indexed by the classpath")
+@Category({"Java Application", "Resource Class Loader"})
+@StackTrace(false)
+public class ResourceScanEvent extends Event {
+  @Label("Jar")
+  String jar;
+
+  @Label("Entries")
+  int entries;
+
+  @Label("Bytes")
+  @DataAmount
+  long bytes;
+
+  @Label("Scan Time")
+  @Timespan
+  long scanTime;
+
+  @Name("minTime")
+  @SettingDefinition
+  protected boolean minTime(final TimeThreshold threshold) {
+    return threshold.accept(scanTime);
+  }
+}
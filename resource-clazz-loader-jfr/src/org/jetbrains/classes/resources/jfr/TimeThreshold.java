@@ -0,0 +1,91 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.jfr;
+
+import jdk.jfr.SettingControl;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code minTime} setting of the loader events, e.g. {@code 10 ms}.
+ * Events that took less time are not committed. The loader reports
+ * times once the work is done, so the built-in {@code threshold}
+ * of an event duration does not apply to the events
+ */
+public class TimeThreshold extends SettingControl {
+  private static final String DEFAULT = "0 ns";
+
+  private volatile String myValue = DEFAULT;
+  private volatile long myNanos = 0;
+
+  public boolean accept(final long nanos) {
+    return nanos >= myNanos;
+  }
+
+  @NotNull
+  @Override
+  public String combine(@NotNull final Set<String> values) {
+    //the most verbose recording wins
+    String result = null;
+    long min = Long.MAX_VALUE;
+    for (String value : values) {
+      final long nanos = parse(value);
+      if (nanos < min) {
+        min = nanos;
+        result = value;
+      }
+    }
+    return result != null ? result : DEFAULT;
+  }
+
+  @Override
+  public void setValue(@NotNull final String value) {
+    myNanos = parse(value);
+    myValue = value;
+  }
+
+  @NotNull
+  @Override
+  public String getValue() {
+    return myValue;
+  }
+
+  static long parse(@NotNull final String value) {
+    final String text = value.trim();
+    int i = 0;
+    while (i < text.length() && Character.isDigit(text.charAt(i))) i++;
+    if (i == 0) return 0;
+
+    final long amount;
+    try {
+      amount = Long.parseLong(text.substring(0, i));
+    } catch (NumberFormatException e) {
+      return Long.MAX_VALUE;
+    }
+
+    final String unit = text.substring(i).trim();
+    if (unit.equals("ns") || unit.isEmpty()) return amount;
+    if (unit.equals("us")) return TimeUnit.MICROSECONDS.toNanos(amount);
+    if (unit.equals("ms")) return TimeUnit.MILLISECONDS.toNanos(amount);
+    if (unit.equals("s")) return TimeUnit.SECONDS.toNanos(amount);
+    if (unit.equals("m")) return TimeUnit.MINUTES.toNanos(amount);
+    if (unit.equals("h")) return TimeUnit.HOURS.toNanos(amount);
+    return 0;
+  }
+}
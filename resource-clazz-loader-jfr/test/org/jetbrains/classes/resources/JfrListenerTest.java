@@ -0,0 +1,132 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.jfr.JfrListener;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JfrListenerTest {
+  private static final String PREFIX = "org.jetbrains.classes.resources.";
+
+  @Test
+  public void should_emit_events() throws Exception {
+    final List<RecordedEvent> events = record("0 ns");
+
+    final RecordedEvent scan = find(events, "ResourceScan");
+    Assert.assertTrue(scan.getString("jar").endsWith("annotations.jar"));
+    Assert.assertTrue(scan.getInt("entries") > 0);
+    Assert.assertTrue(scan.getLong("bytes") > 0);
+
+    final RecordedEvent define = find(events, "ClassDefine");
+    Assert.assertEquals(define.getString("className"), NotNull.class.getName());
+    Assert.assertTrue(define.getInt("size") > 0);
+    Assert.assertNotNull(define.getString("entryType"));
+
+    final RecordedEvent open = find(events, "ResourceOpen");
+    Assert.assertEquals(open.getString("resourceName"), "org/jetbrains/annotations/Nullable.class");
+    Assert.assertEquals(open.getString("read"), "STREAM");
+
+    final RecordedEvent rescan = find(events, "Rescan");
+    Assert.assertEquals(rescan.getString("resourceName"), "org/jetbrains/annotations/NotNull.class");
+  }
+
+  @Test
+  public void should_skip_events_below_threshold() throws Exception {
+    final List<RecordedEvent> events = record("1 h");
+    for (RecordedEvent event : events) {
+      Assert.assertFalse(event.getEventType().getName().startsWith(PREFIX), event.toString());
+    }
+  }
+
+  @Test
+  public void should_emit_scan_events_of_helper() throws Exception {
+    final Recording recording = new Recording();
+    recording.enable(PREFIX + "ResourceScan").with("minTime", "0 ns");
+    recording.start();
+
+    final URL jar = new File("lib/annotations/annotations.jar").toURI().toURL();
+    ResourceClassLoaderHelper.forResources(new ClassLoader(null) {}, new JfrListener(), jar);
+
+    recording.stop();
+    final RecordedEvent scan = find(dump(recording), "ResourceScan");
+    Assert.assertTrue(scan.getString("jar").endsWith("annotations.jar"));
+  }
+
+  @NotNull
+  private static List<RecordedEvent> record(@NotNull final String minTime) throws Exception {
+    final Recording recording = new Recording();
+    for (String event : new String[]{"ResourceScan", "ClassDefine", "ResourceOpen", "Rescan"}) {
+      recording.enable(PREFIX + event).with("minTime", minTime);
+    }
+    recording.start();
+
+    final ResourceClasspath cp = new ResourceClasspath(Ingestion.EAGER);
+    cp.setReleaseDefinedClasses(true);
+    final JfrListener listener = new JfrListener();
+    cp.setListener(listener);
+    cp.addResource(new FileResource(new File("lib/annotations/annotations.jar")));
+
+    final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, new ClassLoader(null) {}, cp);
+    rcl.setListener(listener);
+    Assert.assertNotNull(rcl.loadClass(NotNull.class.getName()));
+
+    final InputStream stream = rcl.getResourceAsStream("org/jetbrains/annotations/Nullable.class");
+    Assert.assertNotNull(stream);
+    stream.close();
+
+    //the class is released, the bytes are read by a scan of the jar
+    Assert.assertNotNull(cp.getClassResource("org/jetbrains/annotations/NotNull.class"));
+
+    recording.stop();
+    return dump(recording);
+  }
+
+  @NotNull
+  private static List<RecordedEvent> dump(@NotNull final Recording recording) throws Exception {
+    final Path file = Files.createTempFile("loader", ".jfr");
+    try {
+      recording.dump(file);
+      return RecordingFile.readAllEvents(file);
+    } finally {
+      recording.close();
+      Files.delete(file);
+    }
+  }
+
+  @NotNull
+  private static RecordedEvent find(@NotNull final List<RecordedEvent> events, @NotNull final String name) {
+    final List<String> names = new ArrayList<String>();
+    for (RecordedEvent event : events) {
+      if (event.getEventType().getName().equals(PREFIX + name)) return event;
+      names.add(event.getEventType().getName());
+    }
+    throw new AssertionError("No " + name + " event in " + names);
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An archive held in memory
+ */
+public class BytesResource implements SeekableResource {
+  private final String myName;
+  private final byte[] myData;
+
+  public BytesResource(@NotNull final String name,
+                       @NotNull final byte[] data) {
+    myName = name;
+    myData = data;
+  }
+
+  @NotNull
+  @Override
+  public String getResourceName() {
+    return myName;
+  }
+
+  @NotNull
+  @Override
+  public InputStream getContent() throws IOException {
+    return new ByteArrayInputStream(myData);
+  }
+
+  @NotNull
+  @Override
+  public ByteBuffer getBuffer() throws IOException {
+    return ByteBuffer.wrap(myData);
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.jetbrains.classes.resources.util.Streams.close;
+
+/**
+ * Ordered list of classes defined by a {@link ResourceClassLoader}, see
+ * {@link ResourceClassLoader#recordProfile(ClassLoadProfile)}.
+ *
+ * A class is recorded once it is defined, so its superclass and interfaces
+ * are recorded before it. Replaying the profile in that order loads
+ * the same classes ahead of the application, see {@link #prefetch(ResourceClassLoader)}.
+ *
+ * Recording stops on {@link #finish()}, once the startup window is over
+ * or the profile is full, so a long running loader does not grow it.
+ * Recording does not lock, classes defined in parallel are recorded in any order.
+ *
+ * The file is a UTF-8 text with one class name per line
+ */
+public class ClassLoadProfile {
+  public static final int DEFAULT_MAX_CLASSES = 50000;
+  public static final long DEFAULT_WINDOW_MILLIS = 120 * 1000L;
+
+  private final ConcurrentLinkedQueue<String> myClasses;
+  private final AtomicInteger mySize;
+  private final AtomicInteger myMissingClasses = new AtomicInteger();
+  private final int myMaxClasses;
+  private final long myDeadline;
+  private volatile boolean myFinished = false;
+  private boolean myLoaded = false;
+
+  public ClassLoadProfile() {
+    this(DEFAULT_MAX_CLASSES, DEFAULT_WINDOW_MILLIS);
+  }
+
+  /**
+   * @param maxClasses number of classes to record
+   * @param windowMillis time to record for, starting now
+   */
+  public ClassLoadProfile(final int maxClasses, final long windowMillis) {
+    this(Collections.<String>emptyList(), maxClasses, System.currentTimeMillis() + windowMillis);
+  }
+
+  private ClassLoadProfile(@NotNull final Collection<String> classes, final int maxClasses, final long deadline) {
+    myClasses = new ConcurrentLinkedQueue<String>(classes);
+    mySize = new AtomicInteger(classes.size());
+    myMaxClasses = maxClasses;
+    myDeadline = deadline;
+  }
+
+  /**
+   * @return false if recording is over, the class is not recorded then
+   */
+  public boolean add(@NotNull final String className) {
+    if (myFinished) return false;
+    if (System.currentTimeMillis() > myDeadline || mySize.incrementAndGet() > myMaxClasses) {
+      myFinished = true;
+      return false;
+    }
+    myClasses.add(className);
+    return true;
+  }
+
+  /**
+   * Stops recording, e.g. once the application has started
+   */
+  public void finish() {
+    myFinished = true;
+  }
+
+  public boolean isFinished() {
+    return myFinished;
+  }
+
+  /**
+   * @return true if the profile was loaded from a file, see {@link #load(File)}
+   */
+  public boolean isLoaded() {
+    return myLoaded;
+  }
+
+  /**
+   * @return true if {@link #prefetch(ResourceClassLoader)} skipped classes that are no
+   * longer on the classpath, such a profile should be recorded again
+   */
+  public boolean isStale() {
+    return myMissingClasses.get() > 0;
+  }
+
+  @NotNull
+  public List<String> getClasses() {
+    return Collections.unmodifiableList(new ArrayList<String>(myClasses));
+  }
+
+  /**
+   * @return the profile or null if there is no such file
+   */
+  @Nullable
+  public static ClassLoadProfile load(@NotNull final File file) throws IOException {
+    if (!file.isFile()) return null;
+
+    final List<String> classes = new ArrayList<String>();
+    final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "utf-8"));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.length() > 0) classes.add(line);
+      }
+    } finally {
+      close(reader);
+    }
+    final ClassLoadProfile profile = new ClassLoadProfile(classes, classes.size(), 0);
+    profile.myFinished = true;
+    profile.myLoaded = true;
+    return profile;
+  }
+
+  public void save(@NotNull final File file) throws IOException {
+    final File dir = file.getAbsoluteFile().getParentFile();
+    if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("Failed to create " + dir);
+
+    final File tmp = File.createTempFile(file.getName() + ".", ".tmp", dir);
+    try {
+      final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), "utf-8"));
+      try {
+        for (String clazz : getClasses()) {
+          writer.write(clazz);
+          writer.write('\n');
+        }
+      } finally {
+        writer.close();
+      }
+
+      if (!tmp.renameTo(file)) {
+        //there is no atomic replace on some platforms
+        if (!file.delete() || !tmp.renameTo(file)) {
+          throw new IOException("Failed to write " + file);
+        }
+      }
+    } finally {
+      //noinspection ResultOfMethodCallIgnored
+      tmp.delete();
+    }
+  }
+
+  /**
+   * Loads classes of the profile in the recorded order on a background daemon thread.
+   * Classes are loaded, but not initialized. Classes that are missing or fail to load
+   * are skipped, the main thread gets the same error on its own attempt.
+   * A missing class makes the profile stale, see {@link #isStale()}
+   *
+   * @return the started thread, interrupt it to stop the prefetch
+   */
+  @NotNull
+  public Thread prefetch(@NotNull final ResourceClassLoader loader) {
+    final List<String> classes = getClasses();
+    final Thread thread = new Thread(new Runnable() {
+      public void run() {
+        for (String clazz : classes) {
+          if (Thread.currentThread().isInterrupted()) return;
+          try {
+            loader.loadClass(clazz);
+          } catch (ClassNotFoundException e) {
+            myMissingClasses.incrementAndGet();
+          } catch (LinkageError e) {
+            //NOP
+          }
+        }
+      }
+    }, "resource-classpath-prefetch");
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  @Override
+  public String toString() {
+    return "ClassLoadProfile{" +
+            "classes=" + getClasses().size() +
+            '}';
+  }
+}
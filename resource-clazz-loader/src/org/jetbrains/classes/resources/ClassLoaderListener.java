@@ -0,0 +1,94 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.entry.ResourceEntry;
+
+/**
+ * Receives events of a {@link ResourceClassLoader} and its {@link ResourceClasspath}.
+ * Methods are called from the loading threads, implementations must be thread-safe and fast.
+ * No events are created and no time is measured while there is no listener
+ * @see org.jetbrains.classes.resources.metrics.LoaderMetrics
+ */
+public interface ClassLoaderListener {
+  /**
+   * The way an entry is read
+   */
+  enum Read {
+    /** class bytes to define a class */
+    CLASS,
+    /** {@link ResourceClasspath#getClassResource(String)} */
+    BYTES,
+    /** a resource stream */
+    STREAM,
+    /** a stream of a resource URL */
+    URL
+  }
+
+  /**
+   * A resource was indexed, the call comes from the indexing thread
+   * @param entries number of indexed entries
+   * @param bytes total known size of the entries
+   * @param nanos time to index the resource
+   */
+  void resourceScanned(@NotNull ResourceHolder resource, int entries, long bytes, long nanos);
+
+  /**
+   * An entry was not stored, it shares the payload of an entry with the same bytes,
+   * see {@link org.jetbrains.classes.resources.entry.ContentStore}. The call comes from the indexing thread
+   * @param size size of the entry bytes
+   */
+  void entryDeduplicated(@NotNull String name, int size);
+
+  /**
+   * A class was looked up from one side of the delegation
+   * @param side {@link Delegation.Owner#SELF} or {@link Delegation.Owner#PARENT}
+   * @param found true if the side has the class
+   */
+  void classLookup(@NotNull String name, @NotNull Delegation.Owner side, boolean found);
+
+  /**
+   * @param size size of the class bytes
+   * @param nanos time spent in {@link ClassLoader#defineClass(String, java.nio.ByteBuffer, java.security.ProtectionDomain)}
+   */
+  void classDefined(@NotNull String name, int size, long nanos);
+
+  /**
+   * {@link ClassLoader#defineClass(String, java.nio.ByteBuffer, java.security.ProtectionDomain)} has thrown,
+   * the error is passed to the caller. The class bytes were reported to {@link #entryRead} before
+   */
+  void classDefineFailed(@NotNull String name);
+
+  /**
+   * An entry of the classpath was read
+   * @param entry the entry, it may wrap the entry that holds the data, see {@link org.jetbrains.classes.resources.entry.Entries#unwrap(ResourceEntry)}
+   * @param size decoded size or -1 if the size is not known before the stream is read
+   * @param nanos time to read the entry bytes or to open the entry stream
+   */
+  void entryRead(@NotNull String name, @NotNull ResourceEntry entry, @NotNull Read read, int size, long nanos);
+
+  /**
+   * A thread waited for another thread that loads the same class
+   */
+  void lockWaited(@NotNull String name, long nanos);
+
+  /**
+   * The loader is closed, no more events are sent
+   */
+  void closed();
+}
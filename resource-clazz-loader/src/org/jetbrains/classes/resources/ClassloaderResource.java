@@ -17,18 +17,41 @@
 package org.jetbrains.classes.resources;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.classes.resources.util.ByteBufferInputStream;
+import org.jetbrains.classes.resources.util.Streams;
+import org.jetbrains.classes.resources.util.ZipArchive;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.util.zip.ZipException;
 
 /**
- * Created 25.07.13 19:18
- *
- * @author Eugene Petrenko (eugene.petrenko@jetbrains.com)
+ * A jar that is a resource of a classloader. The content is resolved once:
+ * a jar of a {@link ResourceClassLoader} is taken right from the entry of its classpath
+ * and a jar inside of a local jar file is a {@link NestedResource}, so jars
+ * nested in jars are not decoded again on every level. Other jars, and jars
+ * in an outer jar that {@link ZipArchive} rejects, are read as a stream on every call
  */
-public class ClassloaderResource implements ResourceHolder {
+public class ClassloaderResource implements SeekableResource {
   private final ClassLoader myClassLoader;
   private final String myName;
+  /**
+   * Guarded by this
+   */
+  private boolean myResolved = false;
+  @Nullable
+  private URL myURL = null;
+  @Nullable
+  private ByteBuffer myBuffer = null;
+  @Nullable
+  private NestedResource myNested = null;
 
   public ClassloaderResource(@NotNull final ClassLoader classLoader,
                              @NotNull final String name) {
@@ -45,6 +68,66 @@ public class ClassloaderResource implements ResourceHolder {
   @NotNull
   @Override
   public InputStream getContent() throws IOException {
-    return myClassLoader.getResourceAsStream(myName);
+    return new ByteBufferInputStream(getBuffer());
+  }
+
+  @NotNull
+  @Override
+  public ByteBuffer getBuffer() throws IOException {
+    final URL url;
+    final ByteBuffer buffer;
+    final NestedResource nested;
+    synchronized (this) {
+      if (!myResolved) resolve();
+      url = myURL;
+      buffer = myBuffer;
+      nested = myNested;
+    }
+
+    if (buffer != null) return buffer.duplicate();
+    if (nested != null) {
+      try {
+        return nested.getBuffer();
+      } catch (ZipException e) {
+        //the outer jar is not supported by ZipArchive, read it the usual way
+        synchronized (this) {
+          myNested = null;
+        }
+      }
+    }
+    return readStream(url);
+  }
+
+  private void resolve() throws IOException {
+    final URL url = myClassLoader.getResource(myName);
+    if (url == null) throw new FileNotFoundException(myName);
+
+    final URLConnection connection = url.openConnection();
+    if (connection instanceof ResourceClasspath.EntryConnection) {
+      myBuffer = ((ResourceClasspath.EntryConnection) connection).getEntry().getBuffer();
+    } else if (connection instanceof JarURLConnection) {
+      myNested = nestedResource((JarURLConnection) connection);
+    }
+    myURL = url;
+    myResolved = true;
+  }
+
+  @NotNull
+  private static ByteBuffer readStream(@NotNull final URL url) throws IOException {
+    final InputStream stream = url.openStream();
+    try {
+      return ByteBuffer.wrap(Streams.readFully(stream));
+    } finally {
+      Streams.close(stream);
+    }
+  }
+  @Nullable
+  private static NestedResource nestedResource(@NotNull final JarURLConnection connection) {
+    final String entry = connection.getEntryName();
+    if (entry == null) return null;
+
+    final File jar = new URLResource(connection.getJarFileURL()).getFile();
+    if (jar == null) return null;
+    return new NestedResource(new FileResource(jar), entry);
   }
 }
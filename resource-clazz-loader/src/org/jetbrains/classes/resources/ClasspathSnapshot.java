@@ -0,0 +1,369 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.classes.resources.entry.BufferEntry;
+import org.jetbrains.classes.resources.entry.GZipBufferEntry;
+import org.jetbrains.classes.resources.entry.ResourceEntry;
+import org.jetbrains.classes.resources.index.EntryVisitor;
+import org.jetbrains.classes.resources.util.ByteBufferInputStream;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.jetbrains.classes.resources.util.Streams.*;
+
+/**
+ * Saves an indexed {@link ResourceClasspath} with all payloads into one file
+ * and opens it back with a read-only memory mapping, so that several processes
+ * share the same pages and no jar is scanned again.
+ *
+ * The file layout is
+ * <pre>
+ *   magic, version, index offset
+ *   payloads
+ *   index: source jars (path, size, mtime, SHA-1) and names with entries (kind, size, offset, length)
+ * </pre>
+ *
+ * A snapshot is stale if a source jar has changed in size, or both mtime and content hash.
+ * A jar that was touched, but not changed, gets its new mtime stored in place on open
+ */
+public class ClasspathSnapshot {
+  private static final int MAGIC = 0x4A5A4353;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 4 + 4 + 8;
+
+  private static final byte KIND_RAW = 0;
+  private static final byte KIND_GZIP = 1;
+
+  /**
+   * Opens the snapshot or creates one from jars, if the snapshot is missing or stale.
+   * Jars are added in the given order, as with {@link ResourceClasspath#addResource(ResourceHolder)}.
+   * A snapshot that could not be saved, e.g. to a read-only directory, is only logged
+   */
+  @NotNull
+  public static ResourceClasspath openOrCreate(@NotNull final File snapshot,
+                                               @NotNull final List<File> jars) throws IOException {
+    final ResourceClasspath cached = open(snapshot, jars);
+    if (cached != null) return cached;
+
+    final ResourceClasspath path = new ResourceClasspath();
+    for (File jar : jars) {
+      path.addResource(new FileResource(jar));
+    }
+    try {
+      save(path, snapshot, jars);
+    } catch (IOException e) {
+      Logger.getLogger(ClasspathSnapshot.class.getName()).log(Level.WARNING, "Failed to save classpath snapshot " + snapshot, e);
+    }
+    return path;
+  }
+
+  /**
+   * @return classpath backed by the mapped snapshot, or null if the snapshot
+   * is missing, broken or was created for different or changed jars
+   */
+  @Nullable
+  public static ResourceClasspath open(@NotNull final File snapshot,
+                                       @NotNull final List<File> jars) throws IOException {
+    if (!snapshot.isFile() || snapshot.length() > Integer.MAX_VALUE) return null;
+
+    final ByteBuffer data;
+    final RandomAccessFile file = new RandomAccessFile(snapshot, "r");
+    try {
+      data = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+    } finally {
+      close(file);
+    }
+
+    try {
+      if (data.remaining() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) return null;
+      final long indexOffset = data.getLong(8);
+      if (indexOffset < HEADER_SIZE || indexOffset > data.limit()) return null;
+
+      final DataInputStream index = new DataInputStream(new ByteBufferInputStream(slice(data, indexOffset, data.limit() - indexOffset)));
+      final Map<Long, Long> touched = new HashMap<Long, Long>();
+      if (!readSources(index, data.limit(), jars, touched)) return null;
+
+      final ResourceClasspath path = new ResourceClasspath();
+      final int names = index.readInt();
+      if (names < 0) throw new IOException("Broken names count");
+      for (int i = 0; i < names; i++) {
+        final String name = index.readUTF();
+        final int length = index.readInt();
+        if (length < 0) throw new IOException("Broken entries count");
+        final ResourceEntry[] chain = new ResourceEntry[length];
+        for (int j = 0; j < chain.length; j++) {
+          chain[j] = readEntry(index, data);
+        }
+
+        //addEntry puts the last added entry first
+        for (int j = chain.length - 1; j >= 0; j--) {
+          path.addEntry(name, chain[j]);
+        }
+      }
+
+      updateModified(snapshot, touched);
+      return path;
+    } catch (IOException e) {
+      //broken or truncated index, e.g. EOFException or UTFDataFormatException
+      return null;
+    }
+  }
+
+  /**
+   * Stores mtime of jars that were touched, but not changed, so that they are not hashed
+   * again on the next open. The header is patched in place, it is read once on open,
+   * so processes that have the snapshot mapped are not affected
+   */
+  private static void updateModified(@NotNull final File snapshot,
+                                     @NotNull final Map<Long, Long> touched) {
+    if (touched.isEmpty()) return;
+    try {
+      final RandomAccessFile file = new RandomAccessFile(snapshot, "rw");
+      try {
+        for (Map.Entry<Long, Long> e : touched.entrySet()) {
+          file.seek(e.getKey());
+          file.writeLong(e.getValue());
+        }
+      } finally {
+        close(file);
+      }
+    } catch (IOException e) {
+      //the snapshot is still valid, e.g. in a read-only directory jars are hashed on every open
+      Logger.getLogger(ClasspathSnapshot.class.getName()).log(Level.FINE, "Failed to update classpath snapshot " + snapshot, e);
+    }
+  }
+
+  /**
+   * Writes the classpath to the snapshot file. The file is replaced at once,
+   * so processes that have mapped the previous snapshot are not affected
+   */
+  public static void save(@NotNull final ResourceClasspath path,
+                          @NotNull final File snapshot,
+                          @NotNull final List<File> jars) throws IOException {
+    final File dir = snapshot.getAbsoluteFile().getParentFile();
+    if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("Failed to create " + dir);
+
+    final File tmp = File.createTempFile(snapshot.getName() + ".", ".tmp", dir);
+    try {
+      final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+      final DataOutputStream index = new DataOutputStream(indexBytes);
+      writeSources(index, jars);
+
+      final CountingOutputStream payloads = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), CACHE_SIZE));
+      try {
+        final DataOutputStream header = new DataOutputStream(payloads);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.writeLong(0);
+
+        final int[] names = {0};
+        final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        final DataOutputStream entriesIndex = new DataOutputStream(entries);
+        path.visitEntries(new EntryVisitor() {
+          @Override
+          public void visit(@NotNull final String name, @NotNull final ResourceEntry entry) throws IOException {
+            names[0]++;
+            int chain = 0;
+            for (ResourceEntry e = entry; e != null; e = e.getNextEntry()) chain++;
+
+            entriesIndex.writeUTF(name);
+            entriesIndex.writeInt(chain);
+            for (ResourceEntry e = entry; e != null; e = e.getNextEntry()) {
+              writeEntry(entriesIndex, payloads, name, e.getBytes());
+            }
+          }
+        });
+        entriesIndex.flush();
+
+        index.writeInt(names[0]);
+        index.flush();
+        entries.writeTo(indexBytes);
+
+        final long indexOffset = payloads.getCount();
+        if (indexOffset + indexBytes.size() > Integer.MAX_VALUE) throw new IOException("Snapshot is too large to be mapped: " + snapshot);
+        indexBytes.writeTo(payloads);
+        payloads.close();
+
+        final RandomAccessFile file = new RandomAccessFile(tmp, "rw");
+        try {
+          file.seek(8);
+          file.writeLong(indexOffset);
+        } finally {
+          file.close();
+        }
+      } finally {
+        close(payloads);
+      }
+
+      if (!tmp.renameTo(snapshot)) {
+        //there is no atomic replace on some platforms
+        if (!snapshot.delete() || !tmp.renameTo(snapshot)) {
+          throw new IOException("Failed to write " + snapshot);
+        }
+      }
+    } finally {
+      //noinspection ResultOfMethodCallIgnored
+      tmp.delete();
+    }
+  }
+
+  private static void writeEntry(@NotNull final DataOutputStream index,
+                                 @NotNull final CountingOutputStream payloads,
+                                 @NotNull final String name,
+                                 @NotNull final byte[] data) throws IOException {
+    //classes are kept raw to define them directly from the mapping
+    final boolean raw = data.length <= GZIP_SIZE || name.endsWith(".class");
+    final byte[] payload = raw ? data : gzip(data, 0, data.length);
+
+    index.writeByte(raw ? KIND_RAW : KIND_GZIP);
+    index.writeInt(data.length);
+    index.writeLong(payloads.getCount());
+    index.writeInt(payload.length);
+    payloads.write(payload);
+  }
+
+  @NotNull
+  private static ResourceEntry readEntry(@NotNull final DataInputStream index,
+                                         @NotNull final ByteBuffer data) throws IOException {
+    final byte kind = index.readByte();
+    final int size = index.readInt();
+    final long offset = index.readLong();
+    final int length = index.readInt();
+
+    if (offset < HEADER_SIZE || length < 0 || offset + length > data.limit()) throw new IOException("Broken entry offset");
+    if (size < 0) throw new IOException("Broken entry size");
+    final ByteBuffer payload = slice(data, offset, length);
+
+    switch (kind) {
+      case KIND_RAW: return new BufferEntry(payload);
+      case KIND_GZIP: return new GZipBufferEntry(size, payload);
+      default: throw new IOException("Unknown entry kind: " + kind);
+    }
+  }
+
+  private static void writeSources(@NotNull final DataOutputStream index,
+                                   @NotNull final List<File> jars) throws IOException {
+    index.writeInt(jars.size());
+    for (File jar : jars) {
+      index.writeUTF(jar.getAbsolutePath());
+      index.writeLong(jar.length());
+      index.writeLong(jar.lastModified());
+      final byte[] hash = hash(jar);
+      index.writeInt(hash.length);
+      index.write(hash);
+    }
+  }
+
+  /**
+   * @param end offset of the end of the index in the snapshot
+   * @param touched collects snapshot offsets of mtime of jars that were touched, but not changed
+   */
+  private static boolean readSources(@NotNull final DataInputStream index,
+                                     final long end,
+                                     @NotNull final List<File> jars,
+                                     @NotNull final Map<Long, Long> touched) throws IOException {
+    if (index.readInt() != jars.size()) return false;
+
+    for (File jar : jars) {
+      final String path = index.readUTF();
+      final long size = index.readLong();
+      //the stream is not buffered, the rest of the index is available
+      final long lastModifiedOffset = end - index.available();
+      final long lastModified = index.readLong();
+      final int hashLength = index.readInt();
+      if (hashLength < 0 || hashLength > index.available()) throw new IOException("Broken source hash");
+      final byte[] hash = new byte[hashLength];
+      index.readFully(hash);
+
+      if (!path.equals(jar.getAbsolutePath())) return false;
+      if (!jar.isFile() || jar.length() != size) return false;
+      //the hash is only computed for a jar that was touched
+      final long modified = jar.lastModified();
+      if (modified == lastModified) continue;
+      if (!Arrays.equals(hash, hash(jar))) return false;
+      touched.put(lastModifiedOffset, modified);
+    }
+    return true;
+  }
+
+  @NotNull
+  private static byte[] hash(@NotNull final File file) throws IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("SHA-1 is not supported. " + e.getMessage(), e);
+    }
+
+    final InputStream is = new FileInputStream(file);
+    try {
+      final byte[] buff = new byte[CACHE_SIZE];
+      int x;
+      while ((x = is.read(buff)) > 0) {
+        digest.update(buff, 0, x);
+      }
+    } finally {
+      close(is);
+    }
+    return digest.digest();
+  }
+
+  @NotNull
+  private static ByteBuffer slice(@NotNull final ByteBuffer data, final long offset, final long length) {
+    final ByteBuffer copy = data.duplicate();
+    copy.position((int) offset);
+    copy.limit((int) (offset + length));
+    return copy.slice();
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream {
+    private long myCount = 0;
+
+    private CountingOutputStream(@NotNull final OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      out.write(b);
+      myCount++;
+    }
+
+    @Override
+    public void write(@NotNull final byte[] b, final int off, final int len) throws IOException {
+      out.write(b, off, len);
+      myCount += len;
+    }
+
+    private long getCount() {
+      return myCount;
+    }
+  }
+}
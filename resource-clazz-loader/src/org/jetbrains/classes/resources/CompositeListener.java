@@ -0,0 +1,87 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.entry.ResourceEntry;
+
+/**
+ * Sends events to all of the listeners in the order of the list
+ */
+public class CompositeListener implements ClassLoaderListener {
+  private final ClassLoaderListener[] myListeners;
+
+  public CompositeListener(@NotNull final ClassLoaderListener... listeners) {
+    myListeners = listeners.clone();
+  }
+
+  @Override
+  public void resourceScanned(@NotNull final ResourceHolder resource, final int entries, final long bytes, final long nanos) {
+    for (ClassLoaderListener listener : myListeners) {
+      listener.resourceScanned(resource, entries, bytes, nanos);
+    }
+  }
+
+  @Override
+  public void entryDeduplicated(@NotNull final String name, final int size) {
+    for (ClassLoaderListener listener : myListeners) {
+      listener.entryDeduplicated(name, size);
+    }
+  }
+
+  @Override
+  public void classLookup(@NotNull final String name, @NotNull final Delegation.Owner side, final boolean found) {
+    for (ClassLoaderListener listener : myListeners) {
+      listener.classLookup(name, side, found);
+    }
+  }
+
+  @Override
+  public void classDefined(@NotNull final String name, final int size, final long nanos) {
+    for (ClassLoaderListener listener : myListeners) {
+      listener.classDefined(name, size, nanos);
+    }
+  }
+
+  @Override
+  public void classDefineFailed(@NotNull final String name) {
+    for (ClassLoaderListener listener : myListeners) {
+      listener.classDefineFailed(name);
+    }
+  }
+
+  @Override
+  public void entryRead(@NotNull final String name, @NotNull final ResourceEntry entry, @NotNull final Read read, final int size, final long nanos) {
+    for (ClassLoaderListener listener : myListeners) {
+      listener.entryRead(name, entry, read, size, nanos);
+    }
+  }
+
+  @Override
+  public void lockWaited(@NotNull final String name, final long nanos) {
+    for (ClassLoaderListener listener : myListeners) {
+      listener.lockWaited(name, nanos);
+    }
+  }
+
+  @Override
+  public void closed() {
+    for (ClassLoaderListener listener : myListeners) {
+      listener.closed();
+    }
+  }
+}
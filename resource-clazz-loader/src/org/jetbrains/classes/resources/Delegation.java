@@ -44,6 +44,25 @@ public enum Delegation {
       return action.callParent(t);
     }
   },
+
+  /**
+   * Asks the side that owns the package of the name, see {@link RoutedAction#getOwner(Object)}.
+   * A name of a package the loader owns is looked up in the parent only if the loader does not have it.
+   * Falls back to {@link #CALL_PARENT_FIRST} for actions that cannot be routed
+   */
+  ROUTE_BY_PACKAGE {
+    @Nullable
+    @Override
+    public <T, R> R apply(@NotNull final ValueAction<T, R> action, @NotNull final T t) {
+      if (!(action instanceof RoutedAction)) return CALL_PARENT_FIRST.apply(action, t);
+
+      switch (((RoutedAction<T, R>) action).getOwner(t)) {
+        case SELF: return CALL_SELF_FIRST.apply(action, t);
+        case PARENT: return action.callParent(t);
+        default: return CALL_PARENT_FIRST.apply(action, t);
+      }
+    }
+  },
   ;
 
   @Nullable
@@ -57,5 +76,22 @@ public enum Delegation {
     R callSelf(@NotNull T r);
   }
 
+  public enum Owner {
+    SELF,
+    PARENT,
+    /**
+     * Both sides could have the name, e.g. a package that is forced to the parent
+     */
+    BOTH,
+  }
+
+  public interface RoutedAction<T, R> extends ValueAction<T, R> {
+    /**
+     * @return the side that owns the package of the name, the call must be cheap
+     */
+    @NotNull
+    Owner getOwner(@NotNull T r);
+  }
+
 
 }
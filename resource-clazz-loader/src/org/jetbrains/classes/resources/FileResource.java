@@ -19,13 +19,16 @@ package org.jetbrains.classes.resources;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.ZipException;
 
 /**
  * Created 24.07.13 15:47
  *
  * @author Eugene Petrenko (eugene.petrenko@jetbrains.com)
  */
-public class FileResource implements ResourceHolder {
+public class FileResource implements SeekableResource {
   private final File myFile;
 
   public FileResource(@NotNull File file) {
@@ -43,4 +46,21 @@ public class FileResource implements ResourceHolder {
   public InputStream getContent() throws IOException {
     return new BufferedInputStream(new FileInputStream(myFile));
   }
+
+  /**
+   * Maps the file on every call, the mapping is released once the buffer is collected
+   * @throws ZipException if the file is too large to be mapped, read it with {@link #getContent()}
+   */
+  @NotNull
+  @Override
+  public ByteBuffer getBuffer() throws IOException {
+    final RandomAccessFile file = new RandomAccessFile(myFile, "r");
+    try {
+      final long length = file.length();
+      if (length > Integer.MAX_VALUE) throw new ZipException("File is too large to be mapped: " + myFile);
+      return file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+    } finally {
+      file.close();
+    }
+  }
 }
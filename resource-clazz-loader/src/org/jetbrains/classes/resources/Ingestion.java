@@ -0,0 +1,43 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+/**
+ * Defines how {@link ResourceClasspath} keeps entries of added resources
+ */
+public enum Ingestion {
+  /**
+   * Every entry is decompressed once and kept in memory as {@link StoragePolicy} decides,
+   * by default entries are compressed again if they are larger than {@link org.jetbrains.classes.resources.util.Streams#GZIP_SIZE}
+   */
+  EAGER,
+
+  /**
+   * Only names, offsets and sizes of entries are read, resources are kept
+   * as they are and an entry is decompressed only when it is requested.
+   * Recently decoded entries are cached
+   */
+  LAZY,
+
+  /**
+   * Entries are read from the archive at random and kept as {@link StoragePolicy} decides,
+   * by default as raw deflate or stored bytes, exactly as they are in the archive.
+   * Such an entry is inflated on every access, and there is no compression at all on ingestion
+   */
+  RAW,
+  ;
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.util.ByteBufferInputStream;
+import org.jetbrains.classes.resources.util.ZipArchive;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.ZipEntry;
+
+/**
+ * A jar inside of another jar, that is indexed where it sits.
+ * A stored inner jar is a view of the outer content, e.g. of a mapped file,
+ * a deflated one is decoded once on the first access and kept.
+ * Nested resources could be nested too, every level is read once
+ */
+public class NestedResource implements SeekableResource {
+  private final SeekableResource myOuter;
+  private final String myName;
+  private ByteBuffer myBuffer;
+
+  /**
+   * @param outer the jar that contains the resource
+   * @param name name of the entry in the outer jar
+   */
+  public NestedResource(@NotNull final SeekableResource outer,
+                        @NotNull final String name) {
+    myOuter = outer;
+    myName = name;
+  }
+
+  @NotNull
+  @Override
+  public String getResourceName() {
+    return myOuter.getResourceName() + "!/" + myName;
+  }
+
+  @NotNull
+  @Override
+  public InputStream getContent() throws IOException {
+    return new ByteBufferInputStream(getBuffer());
+  }
+
+  @NotNull
+  @Override
+  public synchronized ByteBuffer getBuffer() throws IOException {
+    if (myBuffer == null) {
+      final ZipArchive archive = new ZipArchive(myOuter.getBuffer());
+      final int i = archive.indexOf(myName);
+      if (i < 0) throw new FileNotFoundException(getResourceName());
+
+      myBuffer = archive.getMethod(i) == ZipEntry.STORED
+              ? archive.getRawData(i)
+              : ByteBuffer.wrap(archive.getBytes(i));
+    }
+    return myBuffer.duplicate();
+  }
+}
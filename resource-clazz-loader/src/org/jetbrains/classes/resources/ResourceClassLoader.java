@@ -18,18 +18,28 @@ package org.jetbrains.classes.resources;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.classes.resources.util.MissCache;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Method;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.security.ProtectionDomain;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Created 23.07.13 16:54
  *
  * @author Eugene Petrenko (eugene.petrenko@jetbrains.com)
  */
-public class ResourceClassLoader extends ClassLoader {
+public class ResourceClassLoader extends ClassLoader implements Closeable {
   private static final String CLASS_EXTENSION = ".class";
 
   @NotNull
@@ -38,6 +48,36 @@ public class ResourceClassLoader extends ClassLoader {
   private final ClassLoader myParent;
   @NotNull
   private final ResourceClasspath myClasspath;
+  private final ConcurrentMap<String, ReentrantLock> myLocks = new ConcurrentHashMap<String, ReentrantLock>();
+  @Nullable
+  private volatile MissCache myParentClassMisses = null;
+  @Nullable
+  private volatile MissCache myParentResourceMisses = null;
+  @NotNull
+  private volatile String[] myParentPackages = new String[0];
+  @Nullable
+  private volatile ClassLoadProfile myProfile = null;
+  @Nullable
+  private volatile ClassLoaderListener myListener = null;
+  private final AtomicBoolean myClosed = new AtomicBoolean();
+
+  static {
+    registerParallelCapable();
+  }
+
+  /**
+   * Without the registration the JVM locks the loader instance to load classes.
+   * The method is available since Java 7
+   */
+  private static boolean registerParallelCapable() {
+    try {
+      final Method method = ClassLoader.class.getDeclaredMethod("registerAsParallelCapable");
+      method.setAccessible(true);
+      return (Boolean) method.invoke(null);
+    } catch (Exception e) {
+      return false;
+    }
+  }
 
   public ResourceClassLoader(@NotNull final Delegation delegation,
                              @Nullable final ClassLoader parent,
@@ -48,6 +88,84 @@ public class ResourceClassLoader extends ClassLoader {
     myClasspath = classpath;
   }
 
+  /**
+   * Enables caching of class and resource names the parent loader does not have,
+   * so the parent is not asked for them again. The parent must not change
+   */
+  public void setCacheParentMisses(final boolean cache) {
+    myParentClassMisses = cache ? new MissCache(MissCache.DEFAULT_SIZE) : null;
+    myParentResourceMisses = cache ? new MissCache(MissCache.DEFAULT_SIZE) : null;
+  }
+
+  /**
+   * Records classes defined by the loader into the profile until the profile is finished,
+   * see {@link ClassLoadProfile#finish()}
+   *
+   * @param profile the profile or null to stop recording
+   */
+  public void recordProfile(@Nullable final ClassLoadProfile profile) {
+    myProfile = profile;
+  }
+
+  @NotNull
+  public ResourceClasspath getClasspath() {
+    return myClasspath;
+  }
+
+  /**
+   * Sets the listener of the loader and its classpath events or null to remove it.
+   * A shared classpath does not report its events, reads of the loader are reported still,
+   * see {@link SharedClasspaths}
+   *
+   * @see org.jetbrains.classes.resources.metrics.LoaderMetrics#register(ResourceClassLoader)
+   */
+  public synchronized void setListener(@Nullable final ClassLoaderListener listener) {
+    final ClassLoaderListener old = myListener;
+    myListener = listener;
+    myClasspath.changeListener(old, listener);
+  }
+
+  /**
+   * Adds the listener to the current one, see {@link #setListener(ClassLoaderListener)}
+   */
+  public synchronized void addListener(@NotNull final ClassLoaderListener listener) {
+    final ClassLoaderListener current = myListener;
+    setListener(current == null ? listener : new CompositeListener(current, listener));
+  }
+
+  /**
+   * Sets packages that are asked from the parent first with {@link Delegation#ROUTE_BY_PACKAGE},
+   * e.g. {@code org.slf4j}, sub-packages are included
+   */
+  public void setParentPackages(@NotNull final String... packages) {
+    final String[] result = new String[packages.length];
+    for (int i = 0; i < packages.length; i++) {
+      result[i] = packages[i].replace('.', '/') + "/";
+    }
+    myParentPackages = result;
+  }
+
+  @NotNull
+  private Delegation.Owner getOwner(@NotNull final String name, final char separator) {
+    for (String pkg : myParentPackages) {
+      if (isInPackage(name, separator, pkg)) return Delegation.Owner.BOTH;
+    }
+
+    final boolean self = separator == '.'
+            ? myClasspath.hasPackageOfClass(name)
+            : myClasspath.hasPackageOfResource(name);
+    return self ? Delegation.Owner.SELF : Delegation.Owner.PARENT;
+  }
+
+  private static boolean isInPackage(@NotNull final String name, final char separator, @NotNull final String pkg) {
+    if (name.length() <= pkg.length()) return false;
+    for (int i = 0; i < pkg.length(); i++) {
+      final char c = name.charAt(i);
+      if ((c == separator ? '/' : c) != pkg.charAt(i)) return false;
+    }
+    return true;
+  }
+
   @NotNull
   @Override
   protected Class<?> findClass(@NotNull final String name) throws ClassNotFoundException {
@@ -59,14 +177,32 @@ public class ResourceClassLoader extends ClassLoader {
 
   @Nullable
   private Class<?> findClassImpl(@NotNull final String name) {
+    //most of misses are rejected before the resource name is built
+    if (myClosed.get() || !myClasspath.mightContainClass(name)) return null;
+
     final String classResource = name.replace('.', '/').concat(CLASS_EXTENSION);
 
-    final byte[] res;
     try {
-      res = myClasspath.getClassResource(classResource);
+      myClasspath.beginRead();
     } catch (IOException e) {
       return null;
     }
+    try {
+      return defineClassImpl(name, classResource);
+    } finally {
+      myClasspath.endRead();
+    }
+  }
+
+  @Nullable
+  private Class<?> defineClassImpl(@NotNull final String name, @NotNull final String classResource) {
+    final ByteBuffer res;
+    try {
+      res = myClasspath.findClassBuffer(classResource, myListener);
+    } catch (IOException e) {
+      return null;
+    }
+    if (res == null) return null;
 
     final int i = name.lastIndexOf('.');
     if (i >= 0) {
@@ -82,7 +218,23 @@ public class ResourceClassLoader extends ClassLoader {
       }
     }
 
-    return defineClass(name, res, 0, res.length);
+    final ClassLoaderListener listener = myListener;
+    final int size = res.remaining();
+    final long start = listener != null ? System.nanoTime() : 0;
+    final Class<?> clazz;
+    boolean defined = false;
+    try {
+      clazz = defineClass(name, res, (ProtectionDomain) null);
+      defined = true;
+    } finally {
+      if (!defined && listener != null) listener.classDefineFailed(name);
+    }
+    if (listener != null) listener.classDefined(name, size, System.nanoTime() - start);
+    myClasspath.releaseClass(classResource);
+
+    final ClassLoadProfile profile = myProfile;
+    if (profile != null && !profile.add(name)) myProfile = null;
+    return clazz;
   }
 
   @Override
@@ -90,7 +242,8 @@ public class ResourceClassLoader extends ClassLoader {
     Class<?> found = findLoadedClass(name);
     if (found != null) return found;
 
-    synchronized (this) {
+    final ReentrantLock lock = lockClass(name);
+    try {
       found = findLoadedClass(name);
       if (found != null) return found;
 
@@ -102,17 +255,48 @@ public class ResourceClassLoader extends ClassLoader {
       }
 
       return found;
+    } finally {
+      unlockClass(name, lock);
+    }
+  }
+
+  /**
+   * Locks the class name only, so different classes are loaded in parallel.
+   * {@link ReentrantLock} does not pin a virtual thread carrier on a blocking read
+   */
+  @NotNull
+  private ReentrantLock lockClass(@NotNull final String name) {
+    while (true) {
+      ReentrantLock lock = myLocks.get(name);
+      if (lock == null) {
+        final ReentrantLock newLock = new ReentrantLock();
+        lock = myLocks.putIfAbsent(name, newLock);
+        if (lock == null) lock = newLock;
+      }
+
+      if (!lock.tryLock()) {
+        final ClassLoaderListener listener = myListener;
+        final long start = listener != null ? System.nanoTime() : 0;
+        lock.lock();
+        if (listener != null) listener.lockWaited(name, System.nanoTime() - start);
+      }
+      //the lock could be removed while we were waiting for it
+      if (myLocks.get(name) == lock) return lock;
+      lock.unlock();
     }
   }
 
+  private void unlockClass(@NotNull final String name, @NotNull final ReentrantLock lock) {
+    //the class is loaded or missing, waiting threads will see that with a new lock
+    if (lock.getHoldCount() == 1) myLocks.remove(name, lock);
+    lock.unlock();
+  }
+
   @Override
   @Nullable
   public URL findResource(@NotNull final String name) {
-    try {
-      return myClasspath.getResourceAsURL(trimSlashes(name));
-    } catch (IOException e) {
-      return null;
-    }
+    if (myClosed.get()) return null;
+    return myClasspath.findResourceURL(trimSlashes(name));
   }
 
   @NotNull
@@ -124,6 +308,7 @@ public class ResourceClassLoader extends ClassLoader {
   @NotNull
   @Override
   protected Enumeration<URL> findResources(@NotNull final String name) throws IOException {
+    if (myClosed.get()) return Collections.enumeration(Collections.<URL>emptyList());
     return myClasspath.getResources(trimSlashes(name));
   }
 
@@ -139,13 +324,46 @@ public class ResourceClassLoader extends ClassLoader {
     return myDelegation.apply(LOAD_RESOURCE_URL, name);
   }
 
-  private final Delegation.ValueAction<String, Class<?>> LOAD_CLASS = new Delegation.ValueAction<String, Class<?>>() {
+  /**
+   * Releases resources of the classpath, e.g. the off-heap arena.
+   * Classes that are already loaded keep working, but no more classes or resources could be loaded.
+   * Repeated calls do nothing
+   */
+  public void close() {
+    if (!myClosed.compareAndSet(false, true)) return;
+
+    final ClassLoaderListener listener = myListener;
+    if (listener != null) myClasspath.changeListener(listener, null);
+    myClasspath.close();
+
+    if (listener != null) listener.closed();
+  }
+
+  private final Delegation.RoutedAction<String, Class<?>> LOAD_CLASS = new Delegation.RoutedAction<String, Class<?>>() {
+    @NotNull
+    @Override
+    public Delegation.Owner getOwner(@NotNull final String name) {
+      return ResourceClassLoader.this.getOwner(name, '.');
+    }
+
     @Nullable
     @Override
     public Class<?> callParent(@NotNull String name) {
+      final Class<?> clazz = loadParentClass(name);
+      final ClassLoaderListener listener = myListener;
+      if (listener != null) listener.classLookup(name, Delegation.Owner.PARENT, clazz != null);
+      return clazz;
+    }
+
+    @Nullable
+    private Class<?> loadParentClass(@NotNull String name) {
+      final MissCache misses = myParentClassMisses;
+      if (misses != null && misses.contains(name)) return null;
+
       try {
         return myParent.loadClass(name);
       } catch (ClassNotFoundException e) {
+        if (misses != null) misses.add(name);
         return null;
       }
     }
@@ -153,15 +371,29 @@ public class ResourceClassLoader extends ClassLoader {
     @Nullable
     @Override
     public Class<?> callSelf(@NotNull String name) {
-      return findClassImpl(name);
+      final Class<?> clazz = findClassImpl(name);
+      final ClassLoaderListener listener = myListener;
+      if (listener != null) listener.classLookup(name, Delegation.Owner.SELF, clazz != null);
+      return clazz;
     }
   };
 
-  private final Delegation.ValueAction<String, URL> LOAD_RESOURCE_URL = new Delegation.ValueAction<String, URL>() {
+  private final Delegation.RoutedAction<String, URL> LOAD_RESOURCE_URL = new Delegation.RoutedAction<String, URL>() {
+    @NotNull
+    @Override
+    public Delegation.Owner getOwner(@NotNull final String name) {
+      return ResourceClassLoader.this.getOwner(trimSlashes(name), '/');
+    }
+
     @Nullable
     @Override
     public URL callParent(@NotNull String name) {
-      return myParent.getResource(name);
+      final MissCache misses = myParentResourceMisses;
+      if (misses != null && misses.contains(name)) return null;
+
+      final URL url = myParent.getResource(name);
+      if (url == null && misses != null) misses.add(name);
+      return url;
     }
 
     @Nullable
@@ -171,19 +403,31 @@ public class ResourceClassLoader extends ClassLoader {
     }
   };
 
-  private final Delegation.ValueAction<String, InputStream> LOAD_RESOURCE_STREAM = new Delegation.ValueAction<String, InputStream>() {
+  private final Delegation.RoutedAction<String, InputStream> LOAD_RESOURCE_STREAM = new Delegation.RoutedAction<String, InputStream>() {
+    @NotNull
+    @Override
+    public Delegation.Owner getOwner(@NotNull final String name) {
+      return ResourceClassLoader.this.getOwner(trimSlashes(name), '/');
+    }
+
     @Nullable
     @Override
     public InputStream callParent(@NotNull final String name) {
+      final MissCache misses = myParentResourceMisses;
+      if (misses != null && misses.contains(name)) return null;
+
       //call parent first
-      return myParent.getResourceAsStream(name);
+      final InputStream stream = myParent.getResourceAsStream(name);
+      if (stream == null && misses != null) misses.add(name);
+      return stream;
     }
 
     @Nullable
     @Override
     public InputStream callSelf(@NotNull final String name) {
+      if (myClosed.get()) return null;
       try {
-        return myClasspath.getResourceAsStream(trimSlashes(name));
+        return myClasspath.findResourceStream(trimSlashes(name), myListener);
       } catch (IOException e) {
         return null;
       }
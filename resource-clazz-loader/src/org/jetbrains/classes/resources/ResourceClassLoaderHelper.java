@@ -17,9 +17,17 @@
 package org.jetbrains.classes.resources;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Created 26.07.13 18:18
@@ -27,14 +35,175 @@ import java.net.URL;
  * @author Eugene Petrenko (eugene.petrenko@jetbrains.com)
  */
 public class ResourceClassLoaderHelper {
+  private static final Map<File, ClassLoadProfile> ourProfiles = new HashMap<File, ClassLoadProfile>();
+  private static Thread ourProfilesHook = null;
+
+  /**
+   * Indexes up to {@link #defaultParallelism()} resources at a time
+   */
   @NotNull
   public static ClassLoader forResources(@NotNull ClassLoader parent,
                                          @NotNull URL... resources) throws IOException {
+    return forResources(parent, defaultParallelism(), resources);
+  }
 
-    final ResourceClasspath path = new ResourceClasspath();
+  /**
+   * Same as {@link #forResources(ClassLoader, URL...)}, the listener is set to the classpath
+   * before resources are indexed, so it receives {@link ClassLoaderListener#resourceScanned} events too,
+   * and to the loader, see {@link ResourceClassLoader#setListener(ClassLoaderListener)}
+   */
+  @NotNull
+  public static ClassLoader forResources(@NotNull ClassLoader parent,
+                                         @NotNull ClassLoaderListener listener,
+                                         @NotNull URL... resources) throws IOException {
+    final ResourceClassLoader loader = createLoader(parent, defaultParallelism(), listener, resources);
+    loader.setListener(listener);
+    return loader;
+  }
+
+  /**
+   * @return number of resources that are indexed at a time by default, one per available processor
+   */
+  public static int defaultParallelism() {
+    return Math.max(1, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Same as {@link #forResources(ClassLoader, URL...)}, but indexes
+   * up to {@code parallelism} resources at a time
+   */
+  @NotNull
+  public static ClassLoader forResources(@NotNull ClassLoader parent,
+                                         int parallelism,
+                                         @NotNull URL... resources) throws IOException {
+    return createLoader(parent, parallelism, null, resources);
+  }
+
+  /**
+   * Same as {@link #forResources(ClassLoader, URL...)}, but loaders created for the same resources
+   * share one frozen indexed classpath, see {@link SharedClasspaths}.
+   * The classpath is released once all such loaders are closed or collected
+   */
+  @NotNull
+  public static ClassLoader forSharedResources(@NotNull ClassLoader parent,
+                                               @NotNull URL... resources) throws IOException {
+    return new ResourceClassLoader(Delegation.CALL_SELF_FIRST, parent, SharedClasspaths.acquire(defaultParallelism(), resources));
+  }
+
+  /**
+   * Same as {@link #forResources(ClassLoader, URL...)}, but starts the background
+   * prefetch of classes from the profile file, see {@link ClassLoadProfile}.
+   * If there is no profile file yet or a local jar is newer than the file, classes defined
+   * during the startup window of {@link ClassLoadProfile#DEFAULT_WINDOW_MILLIS} are recorded
+   * and saved into the file on JVM shutdown. A profile that turned out stale on prefetch is
+   * removed on JVM shutdown and recorded on the next start. Only the first loader
+   * of the JVM records into the same file
+   */
+  @NotNull
+  public static ClassLoader forResources(@NotNull ClassLoader parent,
+                                         @NotNull final File profile,
+                                         @NotNull URL... resources) throws IOException {
+    final ResourceClassLoader loader = createLoader(parent, defaultParallelism(), null, resources);
+    final File file = profile.getCanonicalFile();
+
+    final ClassLoadProfile recorded = isNewer(file, resources) ? ClassLoadProfile.load(file) : null;
+    if (recorded != null) {
+      recorded.prefetch(loader);
+      storeOnShutdown(file, recorded);
+      return loader;
+    }
+
+    final ClassLoadProfile record = new ClassLoadProfile();
+    if (storeOnShutdown(file, record)) {
+      loader.recordProfile(record);
+    }
+    return loader;
+  }
+
+  private static boolean isNewer(@NotNull final File profile, @NotNull final URL... resources) {
+    final long modified = profile.lastModified();
+    for (URL resource : resources) {
+      final File jar = new URLResource(resource).getFile();
+      if (jar != null && jar.lastModified() > modified) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Registers the profile to be saved into the file on JVM shutdown, a loaded profile
+   * is only checked to remove the file if it is stale. All files share one shutdown hook
+   *
+   * @return false if a profile of the file is registered already
+   */
+  private static synchronized boolean storeOnShutdown(@NotNull final File file,
+                                                      @NotNull final ClassLoadProfile profile) {
+    if (ourProfiles.containsKey(file)) return false;
+    ourProfiles.put(file, profile);
+
+    if (ourProfilesHook == null) {
+      ourProfilesHook = new Thread(new Runnable() {
+        public void run() {
+          storeProfiles();
+        }
+      }, "resource-classpath-profile");
+      Runtime.getRuntime().addShutdownHook(ourProfilesHook);
+    }
+    return true;
+  }
+
+  private static void storeProfiles() {
+    final Map<File, ClassLoadProfile> profiles;
+    synchronized (ResourceClassLoaderHelper.class) {
+      profiles = new HashMap<File, ClassLoadProfile>(ourProfiles);
+    }
+
+    for (Map.Entry<File, ClassLoadProfile> e : profiles.entrySet()) {
+      final File file = e.getKey();
+      final ClassLoadProfile profile = e.getValue();
+      try {
+        if (profile.isStale()) {
+          if (!file.delete() && file.exists()) throw new IOException("Failed to remove " + file);
+        } else if (!profile.isLoaded()) {
+          profile.save(file);
+        }
+      } catch (IOException ex) {
+        Logger.getLogger(ResourceClassLoaderHelper.class.getName()).log(Level.WARNING, "Failed to store class load profile " + file, ex);
+      }
+    }
+  }
+
+  @NotNull
+  private static ResourceClassLoader createLoader(@NotNull ClassLoader parent,
+                                                  int parallelism,
+                                                  @Nullable ClassLoaderListener listener,
+                                                  @NotNull URL... resources) throws IOException {
+
+    final List<ResourceHolder> holders = new ArrayList<ResourceHolder>(resources.length);
     for (int i = resources.length - 1; i >= 0; i--) {
-      path.addResource(new URLResource(resources[i]));
+      holders.add(new URLResource(resources[i]));
     }
+
+    final ResourceClasspath path = new ResourceClasspath();
+    path.setListener(listener);
+    path.addResources(holders, parallelism);
     return new ResourceClassLoader(Delegation.CALL_SELF_FIRST, parent, path);
   }
+
+  /**
+   * Creates a classloader for local jars, the index of the jars is kept in
+   * a memory-mapped snapshot file that is reused while the jars are not changed,
+   * see {@link ClasspathSnapshot}
+   */
+  @NotNull
+  public static ClassLoader forFiles(@NotNull ClassLoader parent,
+                                     @NotNull File snapshot,
+                                     @NotNull File... jars) throws IOException {
+
+    final List<File> files = new ArrayList<File>(jars.length);
+    for (int i = jars.length - 1; i >= 0; i--) {
+      files.add(jars[i]);
+    }
+
+    return new ResourceClassLoader(Delegation.CALL_SELF_FIRST, parent, ClasspathSnapshot.openOrCreate(snapshot, files));
+  }
 }
@@ -17,17 +17,33 @@
 package org.jetbrains.classes.resources;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.classes.resources.entry.*;
+import org.jetbrains.classes.resources.index.EntryVisitor;
+import org.jetbrains.classes.resources.index.FrozenIndex;
+import org.jetbrains.classes.resources.index.PrefixIndex;
+import org.jetbrains.classes.resources.index.ResourceIndex;
+import org.jetbrains.classes.resources.util.*;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 
 import static org.jetbrains.classes.resources.util.Streams.*;
@@ -37,13 +53,451 @@ import static org.jetbrains.classes.resources.util.Streams.*;
  *
  * @author Eugene Petrenko (eugene.petrenko@jetbrains.com)
  */
-public class ResourceClasspath {
+public class ResourceClasspath implements Closeable {
   private static final String PROTOCOL = "jonnyzzz";
+  /**
+   * Minimal number of archive entries that are decoded by a thread
+   */
+  private static final int ARCHIVE_CHUNK = 256;
 
   private final String myId = UUID.randomUUID().toString();
-  private final Map<String, ResourceEntry> myCache = new HashMap<String, ResourceEntry>();
+  /**
+   * The index is replaced as a whole on live updates and on {@link #freeze()}
+   */
+  private volatile ResourceIndex myCache = new PrefixIndex();
+  @NotNull
+  private final Ingestion myIngestion;
+  @NotNull
+  private final StoragePolicy myPolicy;
+  @Nullable
+  private final OffHeapArena myArena;
+  @NotNull
+  private final DecodedCache myDecoded = new DecodedCache(DecodedCache.DEFAULT_SIZE);
+  private volatile boolean myReleaseClasses = false;
+  @Nullable
+  private volatile ContentStore myStore = null;
+  @Nullable
+  private volatile ClassLoaderListener myListener = null;
+  private final AtomicLong myScannedResources = new AtomicLong();
+  private final AtomicLong myScannedEntries = new AtomicLong();
+  private final AtomicLong myScanNanos = new AtomicLong();
+  private final AtomicLong myDeduplicatedEntries = new AtomicLong();
+  private final AtomicLong myDeduplicatedBytes = new AtomicLong();
+  /**
+   * URLs of all duplicates of a name, created on the first request.
+   * A new map is published after the new index
+   */
+  private volatile ConcurrentMap<String, URL[]> myURLs = new ConcurrentHashMap<String, URL[]>();
+  /**
+   * Resources in the order of addition with their entries, the index is built from them
+   * on every change once live updates are enabled. Guarded by this
+   */
+  @Nullable
+  private List<Layer> myLayers = null;
+
+  public ResourceClasspath() {
+    this(Ingestion.EAGER);
+  }
+
+  public ResourceClasspath(@NotNull final Ingestion ingestion) {
+    this(ingestion, ingestion == Ingestion.RAW ? StoragePresets.AS_IS : StoragePresets.DEFAULT);
+  }
+
+  /**
+   * @param policy decides how entries are kept, it is not used with {@link Ingestion#LAZY}
+   */
+  public ResourceClasspath(@NotNull final Ingestion ingestion,
+                           @NotNull final StoragePolicy policy) {
+    myIngestion = ingestion;
+    myPolicy = policy;
+    myArena = null;
+  }
+
+  /**
+   * Creates classpath that keeps all payloads uncompressed in the given arena,
+   * see {@link StoragePresets#MIN_CPU}
+   */
+  public ResourceClasspath(@NotNull final OffHeapArena arena) {
+    this(arena, StoragePresets.MIN_CPU);
+  }
+
+  /**
+   * Creates classpath that keeps all payloads in the given arena.
+   * Uncompressed classes are defined directly from the arena,
+   * the arena is closed with the classpath
+   */
+  public ResourceClasspath(@NotNull final OffHeapArena arena,
+                           @NotNull final StoragePolicy policy) {
+    myIngestion = Ingestion.EAGER;
+    myPolicy = policy;
+    myArena = arena;
+  }
+
+  /**
+   * Enables release of class payloads once classes are defined, see {@link #releaseClass(String)}.
+   * Applies to resources that are added after the call
+   */
+  public void setReleaseDefinedClasses(final boolean release) {
+    myReleaseClasses = release;
+  }
+
+  /**
+   * Shares payloads of entries with equal bytes via the store, the store may be used by
+   * other classpaths too. Applies to resources that are added after the call,
+   * lazy and large entries are not stored. Classes are not stored either if they are released
+   * once defined, see {@link #setReleaseDefinedClasses(boolean)}, a shared payload would not be freed.
+   * A shared entry keeps the storage chosen by the {@link StoragePolicy} of the classpath that stored it
+   */
+  public void setContentStore(@Nullable final ContentStore store) {
+    if (store != null && myArena != null) throw new IllegalStateException("Entries of an arena are released with the classpath");
+    myStore = store;
+  }
+
+  @Nullable
+  public ContentStore getContentStore() {
+    return myStore;
+  }
+
+  /**
+   * @return number of resources that were indexed, the counters of the classpath do not depend on listeners
+   */
+  public long getScannedResources() {
+    return myScannedResources.get();
+  }
+
+  public long getScannedEntries() {
+    return myScannedEntries.get();
+  }
+
+  public long getScanTimeNanos() {
+    return myScanNanos.get();
+  }
+
+  /**
+   * @return number of indexed entries that share the payload of an equal entry of the content store
+   */
+  public long getDeduplicatedEntries() {
+    return myDeduplicatedEntries.get();
+  }
+
+  public long getDeduplicatedBytes() {
+    return myDeduplicatedBytes.get();
+  }
+
+  /**
+   * Enables {@link #removeResource(String)} and {@link #replaceResource(String, ResourceHolder)}.
+   * Every change builds a new index that is published at once, so a lookup sees
+   * either all or none of the entries of a changed resource and is never blocked.
+   * Classes that are already defined are not affected by changes.
+   * Must be called before resources are added, entries of all resources are kept for rebuilds
+   */
+  public synchronized void enableLiveUpdates() {
+    if (myCache.size() > 0) throw new IllegalStateException("Live updates must be enabled before resources are added");
+    if (myLayers == null) myLayers = new ArrayList<Layer>();
+  }
 
   public void addResource(@NotNull ResourceHolder resource) throws IOException {
+    addResource(resource, 1);
+  }
+
+  /**
+   * Same as {@link #addResource(ResourceHolder)}, but entries of a jar that is read at random,
+   * e.g. a mapped local file, are decoded on up to {@code parallelism} threads
+   */
+  public void addResource(@NotNull ResourceHolder resource, final int parallelism) throws IOException {
+    addLayers(Collections.singletonList(new Layer(resource.getResourceName(), scanResource(resource, parallelism))));
+  }
+
+  /**
+   * Indexes resources on up to {@code parallelism} threads.
+   * Entries are merged in the order of the list, so the result is the same
+   * as of a {@link #addResource(ResourceHolder)} call for each resource in a row
+   */
+  public void addResources(@NotNull final List<? extends ResourceHolder> resources,
+                           final int parallelism) throws IOException {
+    if (resources.size() == 1) {
+      addResource(resources.get(0), parallelism);
+      return;
+    }
+
+    final List<Callable<List<ScannedEntry>>> tasks = new ArrayList<Callable<List<ScannedEntry>>>(resources.size());
+    for (final ResourceHolder resource : resources) {
+      tasks.add(new Callable<List<ScannedEntry>>() {
+        @NotNull
+        @Override
+        public List<ScannedEntry> call() throws IOException {
+          return scanResource(resource, 1);
+        }
+      });
+    }
+
+    final List<List<ScannedEntry>> scanned = ParallelTasks.run(tasks, parallelism);
+    final List<Layer> layers = new ArrayList<Layer>(resources.size());
+    for (int i = 0; i < resources.size(); i++) {
+      layers.add(new Layer(resources.get(i).getResourceName(), scanned.get(i)));
+    }
+    addLayers(layers);
+  }
+
+  /**
+   * Removes the last added resource with the name, requires {@link #enableLiveUpdates()}
+   * @return false if there is no such resource
+   */
+  public synchronized boolean removeResource(@NotNull final String resourceName) {
+    final int i = indexOfLayer(resourceName);
+    if (i < 0) return false;
+
+    myLayers.remove(i);
+    publishLayers();
+    return true;
+  }
+
+  /**
+   * Indexes the resource and puts it in place of the last added resource with the name,
+   * so it shadows and is shadowed by the same resources. Requires {@link #enableLiveUpdates()}
+   * @return false if there is no such resource, the classpath is not changed then
+   */
+  public boolean replaceResource(@NotNull final String resourceName,
+                                 @NotNull final ResourceHolder resource) throws IOException {
+    synchronized (this) {
+      if (indexOfLayer(resourceName) < 0) return false;
+    }
+
+    //readers and writers are not blocked while the resource is indexed
+    final Layer layer = new Layer(resource.getResourceName(), scanResource(resource, 1));
+    synchronized (this) {
+      final int i = indexOfLayer(resourceName);
+      if (i < 0) return false;
+
+      myLayers.set(i, layer);
+      publishLayers();
+      return true;
+    }
+  }
+
+  private int indexOfLayer(@NotNull final String resourceName) {
+    if (myLayers == null) throw new IllegalStateException("Live updates are not enabled");
+
+    for (int i = myLayers.size() - 1; i >= 0; i--) {
+      if (myLayers.get(i).myName.equals(resourceName)) return i;
+    }
+    return -1;
+  }
+
+  private void addLayers(@NotNull final List<Layer> layers) {
+    synchronized (this) {
+      if (myCache instanceof FrozenIndex) throw new IllegalStateException("Frozen classpath does not accept new resources");
+      if (myLayers != null) {
+        myLayers.addAll(layers);
+        publishLayers();
+        return;
+      }
+    }
+
+    for (Layer layer : layers) {
+      addEntries(layer.myEntries);
+    }
+  }
+
+  /**
+   * Builds a new index of all resources, a later resource shadows earlier ones
+   */
+  private void publishLayers() {
+    final PrefixIndex index = new PrefixIndex();
+    for (Layer layer : myLayers) {
+      for (ScannedEntry e : layer.myEntries) {
+        addEntry(index, e.myName, e.myEntry);
+      }
+    }
+
+    myCache = index;
+    myURLs = new ConcurrentHashMap<String, URL[]>();
+  }
+
+  /**
+   * Replaces the index with a compact read-only {@link FrozenIndex} once all resources are added,
+   * e.g. after {@link #compact()}. Lookups are not blocked, no resources can be added after that
+   * @return false if the index could not be built, the classpath is not changed then
+   */
+  public synchronized boolean freeze() throws IOException {
+    if (myLayers != null) throw new IllegalStateException("Resources of a classpath with live updates may change");
+    if (myCache instanceof FrozenIndex) return true;
+
+    final FrozenIndex index = FrozenIndex.build(myCache);
+    if (index == null) return false;
+
+    myCache = index;
+    return true;
+  }
+
+  @NotNull
+  private List<ScannedEntry> scanResource(@NotNull final ResourceHolder resource,
+                                          final int parallelism) throws IOException {
+    final long start = System.nanoTime();
+    final List<ScannedEntry> entries = scanResourceImpl(resource, parallelism);
+    final long nanos = System.nanoTime() - start;
+    myScannedResources.incrementAndGet();
+    myScannedEntries.addAndGet(entries.size());
+    myScanNanos.addAndGet(nanos);
+
+    final ClassLoaderListener listener = myListener;
+    if (listener == null) return entries;
+
+    long bytes = 0;
+    for (ScannedEntry e : entries) {
+      bytes += Math.max(0, e.myEntry.getSize());
+    }
+    listener.resourceScanned(resource, entries.size(), bytes, nanos);
+    return entries;
+  }
+
+  @NotNull
+  private List<ScannedEntry> scanResourceImpl(@NotNull ResourceHolder resource,
+                                              final int parallelism) throws IOException {
+    resource = toLocalResource(resource);
+
+    //a jar that is read at random has no sequential scan, whatever the ingestion is
+    if (myIngestion != Ingestion.EAGER || resource instanceof SeekableResource) {
+      try {
+        return scanArchive(resource, parallelism);
+      } catch (ZipException e) {
+        //the archive could not be read at random, e.g. Zip64 or a file over 2GB
+      }
+    }
+    return scanStream(resource);
+  }
+
+  /**
+   * @return a mapped file resource for a {@code file:} URL
+   */
+  @NotNull
+  private static ResourceHolder toLocalResource(@NotNull final ResourceHolder resource) {
+    if (resource instanceof URLResource) {
+      final File file = ((URLResource) resource).getFile();
+      if (file != null) return new FileResource(file);
+    }
+    return resource;
+  }
+
+  @NotNull
+  private List<ScannedEntry> scanArchive(@NotNull final ResourceHolder resource,
+                                         final int parallelism) throws IOException {
+    final ZipArchive archive = resource instanceof SeekableResource
+            ? new ZipArchive(((SeekableResource) resource).getBuffer())
+            : ZipArchive.read(resource.getContent());
+
+    //lazy entries are not decoded on ingestion
+    final int size = archive.size();
+    if (parallelism <= 1 || myIngestion == Ingestion.LAZY || size < 2 * ARCHIVE_CHUNK) {
+      return scanArchive(resource, archive, 0, size);
+    }
+
+    final int chunk = Math.max(ARCHIVE_CHUNK, (size + parallelism - 1) / parallelism);
+    final List<Callable<List<ScannedEntry>>> tasks = new ArrayList<Callable<List<ScannedEntry>>>();
+    for (int from = 0; from < size; from += chunk) {
+      final int start = from;
+      final int end = Math.min(size, from + chunk);
+      tasks.add(new Callable<List<ScannedEntry>>() {
+        @NotNull
+        @Override
+        public List<ScannedEntry> call() throws IOException {
+          return scanArchive(resource, archive, start, end);
+        }
+      });
+    }
+
+    final List<ScannedEntry> result = new ArrayList<ScannedEntry>(size);
+    for (List<ScannedEntry> entries : ParallelTasks.run(tasks, parallelism)) {
+      result.addAll(entries);
+    }
+    return result;
+  }
+
+  @NotNull
+  private List<ScannedEntry> scanArchive(@NotNull final ResourceHolder resource,
+                                         @NotNull final ZipArchive archive,
+                                         final int from,
+                                         final int to) throws IOException {
+    final List<ScannedEntry> result = new ArrayList<ScannedEntry>(to - from);
+    for (int i = from; i < to; i++) {
+      if (archive.isDirectory(i)) continue;
+
+      final String name = archive.getName(i);
+      final ResourceEntry entry = myIngestion == Ingestion.LAZY
+              ? new LazyEntry(archive, i, myDecoded)
+              : archiveEntry(resource, archive, i, name);
+      result.add(scanned(resource, name, entry));
+    }
+    return result;
+  }
+
+  @NotNull
+  private ResourceEntry archiveEntry(@NotNull final ResourceHolder resource,
+                                     @NotNull final ZipArchive archive,
+                                     final int i,
+                                     @NotNull final String name) throws IOException {
+    final int size = archive.getSize(i);
+    if (size >= CACHE_SIZE) {
+      return resource instanceof SeekableResource
+              ? new LazyEntry(archive, i, myDecoded)
+              : new ScanEntry(resource, name);
+    }
+
+    final ContentStore store = isReleasable(name) ? null : myStore;
+    final int crc = archive.getCrc(i);
+    byte[] bytes = null;
+    if (store != null && store.mightContain(crc, size)) {
+      bytes = archive.getBytes(i);
+      final ResourceEntry stored = findStored(store, name, crc, bytes, size);
+      if (stored != null) return stored;
+    }
+
+    final Storage storage = myPolicy.getStorage(name, size, archive.getCompressedSize(i));
+    //the arena keeps decoded bytes
+    if (storage.getKind() != Storage.Kind.KEEP || myArena != null) {
+      return putStored(store, crc, size, createEntry(name, storage, bytes != null ? bytes : archive.getBytes(i), size));
+    }
+
+    final ByteBuffer raw = archive.getRawData(i);
+    final byte[] data = new byte[raw.remaining()];
+    raw.get(data);
+
+    switch (archive.getMethod(i)) {
+      case ZipEntry.STORED: return putStored(store, crc, size, new BytesEntry(data));
+      case ZipEntry.DEFLATED: return putStored(store, crc, size, new DeflatedEntry(size, crc, data));
+      default: throw new ZipException("Unsupported compression method " + archive.getMethod(i) + " of " + name);
+    }
+  }
+
+  @Nullable
+  private ResourceEntry findStored(@NotNull final ContentStore store,
+                                   @NotNull final String name,
+                                   final long crc,
+                                   @NotNull final byte[] data,
+                                   final int size) throws IOException {
+    final ResourceEntry stored = store.find(crc, data, size);
+    if (stored == null) return null;
+
+    myDeduplicatedEntries.incrementAndGet();
+    myDeduplicatedBytes.addAndGet(size);
+    final ClassLoaderListener listener = myListener;
+    if (listener != null) listener.entryDeduplicated(trimSlashes(name), size);
+    return stored;
+  }
+
+  @NotNull
+  private static ResourceEntry putStored(@Nullable final ContentStore store,
+                                         final long crc,
+                                         final int size,
+                                         @NotNull final ResourceEntry entry) {
+    if (store != null) store.put(crc, size, entry);
+    return entry;
+  }
+
+  @NotNull
+  private List<ScannedEntry> scanStream(@NotNull final ResourceHolder resource) throws IOException {
+    final List<ScannedEntry> result = new ArrayList<ScannedEntry>();
+    final LargeEntries large = new LargeEntries(resource);
     final byte[] buff = new byte[CACHE_SIZE];
     final ZipInputStream jos = new ZipInputStream(resource.getContent());
     try {
@@ -52,51 +506,219 @@ public class ResourceClasspath {
         if (ze == null) break;
         if (ze.isDirectory()) continue;
 
-        addEntry(ze, processEntry(resource, buff, jos, ze));
+        result.add(scanned(resource, ze.getName(), processEntry(large, buff, jos, ze)));
       }
     } finally {
-      close(jos);
+      Streams.close(jos);
     }
+    return result;
   }
 
   @NotNull
-  private ResourceEntry processEntry(@NotNull final ResourceHolder resource,
+  private ResourceEntry processEntry(@NotNull final LargeEntries large,
                                      @NotNull final byte[] buff,
                                      @NotNull final ZipInputStream jos,
                                      @NotNull final ZipEntry ze) throws IOException {
-    final boolean isClazz = ze.getName().endsWith(".class");
     final int sz = readFully(jos, buff);
+    if (sz >= buff.length) return large.create(ze);
+
+    //sizes of the entry are known once it is read
+    final String name = ze.getName();
+    final ContentStore store = isReleasable(name) ? null : myStore;
+    if (store == null) return createEntry(name, myPolicy.getStorage(name, sz, ze.getCompressedSize()), buff, sz);
+
+    final long crc = ze.getCrc() >= 0 ? ze.getCrc() : crc(buff, sz);
+    final ResourceEntry stored = store.mightContain(crc, sz) ? findStored(store, name, crc, buff, sz) : null;
+    if (stored != null) return stored;
+    return putStored(store, crc, sz, createEntry(name, myPolicy.getStorage(name, sz, ze.getCompressedSize()), buff, sz));
+  }
+
+  private static long crc(@NotNull final byte[] data, final int size) {
+    final CRC32 crc = new CRC32();
+    crc.update(data, 0, size);
+    return crc.getValue();
+  }
+
+  @NotNull
+  private ResourceEntry createEntry(@NotNull final String name,
+                                    @NotNull final Storage storage,
+                                    @NotNull final byte[] data,
+                                    final int size) throws IOException {
+    if (storage.getKind() == Storage.Kind.DEFLATE) {
+      final byte[] gzip = gzip(data, 0, size, storage.getLevel());
 
-    if (sz <= GZIP_SIZE) return new BytesEntry(Arrays.copyOf(buff, sz));
-    if (sz < buff.length) {
-      return isClazz
-              ? new SizedGZipResourceEntry(sz, gzip(buff, 0, sz))
-              : new GZipResourceEntry(gzip(buff, 0, sz));
+      //already compressed data only grows
+      if (gzip.length < size) {
+        if (myArena != null) return new GZipBufferEntry(size, myArena.allocate(gzip, 0, gzip.length), myArena);
+
+        return name.endsWith(".class")
+                ? new SizedGZipResourceEntry(size, gzip)
+                : new GZipResourceEntry(gzip);
+      }
     }
 
-    return new ScanEntry(resource, ze);
+    if (myArena != null) return new BufferEntry(myArena.allocate(data, 0, size), myArena);
+    return new BytesEntry(size == data.length ? data : Arrays.copyOf(data, size));
   }
 
-  private void addEntry(@NotNull final ZipEntry ze,
-                        @NotNull final ResourceEntry entry) {
-    final String key = trimSlashes(ze.getName());
-    final ResourceEntry prev = myCache.put(key, entry);
-    if (prev != null) {
-      myCache.put(key, new CompositeEntry(entry, prev));
+  /**
+   * Creates entries that are too large to be kept in memory. Such an entry of
+   * a {@link SeekableResource} is read right from its offset in the resource,
+   * otherwise the resource is scanned up to the entry on every access
+   */
+  private class LargeEntries {
+    private final ResourceHolder myResource;
+    private ZipArchive myArchive;
+    private Map<String, Integer> myPositions;
+
+    private LargeEntries(@NotNull final ResourceHolder resource) {
+      myResource = resource;
+    }
+
+    @NotNull
+    private ResourceEntry create(@NotNull final ZipEntry ze) throws IOException {
+      if (myResource instanceof SeekableResource) {
+        if (myPositions == null) index((SeekableResource) myResource);
+
+        final Integer i = myPositions.get(ze.getName());
+        if (i != null) return new LazyEntry(myArchive, i, myDecoded);
+      }
+      return new ScanEntry(myResource, ze);
+    }
+
+    private void index(@NotNull final SeekableResource resource) throws IOException {
+      myPositions = new HashMap<String, Integer>();
+      try {
+        myArchive = new ZipArchive(resource.getBuffer());
+      } catch (ZipException e) {
+        return;
+      }
+
+      //the first entry wins, as with a scan
+      for (int i = myArchive.size() - 1; i >= 0; i--) {
+        myPositions.put(myArchive.getName(i), i);
+      }
     }
   }
 
+  @NotNull
+  private ScannedEntry scanned(@NotNull final ResourceHolder resource,
+                               @NotNull final String name,
+                               @NotNull ResourceEntry entry) {
+    //lazy and scan entries hold no payload
+    if (isReleasable(name) && !(entry instanceof LazyEntry) && !(entry instanceof ScanEntry)) {
+      entry = new ReleasableEntry(entry, resource, name);
+    }
+    return new ScannedEntry(trimSlashes(name), entry);
+  }
+
+  private boolean isReleasable(@NotNull final String name) {
+    return myReleaseClasses && name.endsWith(".class");
+  }
+
+  private void addEntries(@NotNull final List<ScannedEntry> entries) {
+    for (ScannedEntry e : entries) {
+      addEntry(e.myName, e.myEntry);
+    }
+  }
+
+  void addEntry(@NotNull final String key,
+                @NotNull final ResourceEntry entry) {
+    if (addEntry(myCache, key, entry)) myURLs.remove(key);
+  }
+
+  /**
+   * @return true if the entry shadows an entry of the same name
+   */
+  private static boolean addEntry(@NotNull final ResourceIndex index,
+                                  @NotNull final String key,
+                                  @NotNull final ResourceEntry entry) {
+    final ResourceEntry prev = index.put(key, entry);
+    if (prev == null) return false;
+
+    index.put(key, new CompositeEntry(entry, prev));
+    return true;
+  }
+
+  @Nullable
+  ResourceEntry getEntry(@NotNull final String name) {
+    return myCache.get(name);
+  }
+
+  /**
+   * Visits every indexed name, the entry contains all duplicates of the name
+   * available via {@link ResourceEntry#getNextEntry()}
+   */
+  void visitEntries(@NotNull final EntryVisitor visitor) throws IOException {
+    myCache.visit(visitor);
+  }
+
   @NotNull
   public URL getResourceAsURL(@NotNull final String name) throws IOException {
-    final ResourceEntry holder = myCache.get(name);
-    if (holder == null) throw new FileNotFoundException();
-    return createURL(name, 0);
+    final URL url = findResourceURL(name);
+    if (url == null) throw new FileNotFoundException(name);
+    return url;
+  }
+
+  /**
+   * @return URL of the resource or null if there is no such resource, no exception is created on a miss
+   */
+  @Nullable
+  public URL findResourceURL(@NotNull final String name) {
+    final URL[] urls = getURLs(name);
+    return urls != null ? urls[0] : null;
+  }
+
+  /**
+   * URL objects are created once and reused, a URL refers to its entry,
+   * so no lookup is done to open the URL
+   */
+  @Nullable
+  private URL[] getURLs(@NotNull final String name) {
+    //the map is read before the index, so it never gets URLs of an older index
+    final ConcurrentMap<String, URL[]> cache = myURLs;
+    final URL[] cached = cache.get(name);
+    if (cached != null) return cached;
+
+    final ResourceEntry entry = myCache.get(name);
+    if (entry == null) return null;
+
+    final URL[] urls = new URL[Entries.getCount(entry)];
+    for (int i = 0; i < urls.length; i++) {
+      urls[i] = createURL(name, i, Entries.getDuplicate(entry, i));
+    }
+
+    final URL[] prev = cache.putIfAbsent(name, urls);
+    return prev != null ? prev : urls;
+  }
+
+  /**
+   * @param className binary class name, e.g. {@code java.lang.String}
+   * @return true if the classpath has entries in the package of the class
+   */
+  public boolean hasPackageOfClass(@NotNull final String className) {
+    return myCache.hasPackageOf(className, '.');
+  }
+
+  /**
+   * @return true if the classpath has entries in the directory of the resource
+   */
+  public boolean hasPackageOfResource(@NotNull final String name) {
+    return myCache.hasPackageOf(name, '/');
+  }
+
+  /**
+   * @param className binary class name, e.g. {@code java.lang.String}
+   * @return false if the classpath has no such class for sure, the check does not allocate
+   */
+  public boolean mightContainClass(@NotNull final String className) {
+    return myCache.mightContainClass(className);
   }
 
   @NotNull
-  private URL createURL(@NotNull final String name, final int id) {
+  private URL createURL(@NotNull final String name, final int id, @NotNull final ResourceEntry entry) {
     try {
-    return new URL(PROTOCOL, myId, 42 + id, "/" + name, HANDLER);
+      return new URL(PROTOCOL, myId, 42 + id, "/" + name, new EntryHandler(name, id, entry));
     } catch (MalformedURLException e) {
       throw new RuntimeException("Failed to create URL  for " + name + ", id=" + id + " " + e.getMessage(), e);
     }
@@ -104,38 +726,196 @@ public class ResourceClasspath {
 
   @NotNull
   public Enumeration<URL> getResources(@NotNull final String name) {
-    final ResourceEntry entry = myCache.get(name);
-    if (entry == null) return EMPTY;
+    final URL[] urls = getURLs(name);
+    if (urls == null) return EMPTY;
 
     return new Enumeration<URL>() {
-      private int myCount = 0;
-      private ResourceEntry myEntry = entry;
+      private int myIndex = 0;
+
       @Override
       public boolean hasMoreElements() {
-        return myEntry != null;
+        return myIndex < urls.length;
       }
 
       @Override
       public URL nextElement() {
-        final URL url = createURL(name, myCount++);
-        myEntry = myEntry.getNextEntry();
-        return url;
+        if (myIndex >= urls.length) throw new NoSuchElementException();
+        return urls[myIndex++];
       }
     };
   }
 
   @NotNull
   public InputStream getResourceAsStream(@NotNull final String name) throws IOException {
+    final InputStream stream = findResourceStream(name);
+    if (stream == null) throw new FileNotFoundException(name);
+    return stream;
+  }
+
+  /**
+   * @return stream of the resource or null if there is no such resource
+   */
+  @Nullable
+  public InputStream findResourceStream(@NotNull final String name) throws IOException {
+    return findResourceStream(name, myListener);
+  }
+
+  @Nullable
+  InputStream findResourceStream(@NotNull final String name,
+                                 @Nullable final ClassLoaderListener listener) throws IOException {
     final ResourceEntry holder = myCache.get(name);
-    if (holder == null) throw new FileNotFoundException(name);
-    return holder.getStream();
+    if (holder == null) return null;
+    return readStream(name, holder, ClassLoaderListener.Read.STREAM, listener);
   }
 
   @NotNull
   public byte[] getClassResource(@NotNull final String name) throws IOException {
     final ResourceEntry holder = myCache.get(name);
     if (holder == null) throw new FileNotFoundException(name);
-    return holder.getBytes();
+
+    final ClassLoaderListener listener = myListener;
+    if (listener == null) return holder.getBytes();
+
+    final long start = System.nanoTime();
+    final byte[] bytes = holder.getBytes();
+    listener.entryRead(name, holder, ClassLoaderListener.Read.BYTES, bytes.length, System.nanoTime() - start);
+    return bytes;
+  }
+
+  /**
+   * @return class bytes, the buffer is a view of the arena memory for the arena-backed classpath
+   * between {@link #beginRead()} and {@link #endRead()}, otherwise a copy
+   */
+  @NotNull
+  public ByteBuffer getClassBuffer(@NotNull final String name) throws IOException {
+    final ByteBuffer buffer = findClassBuffer(name);
+    if (buffer == null) throw new FileNotFoundException(name);
+    return buffer;
+  }
+
+  /**
+   * @return class bytes as of {@link #getClassBuffer(String)} or null if there is no such class
+   */
+  @Nullable
+  public ByteBuffer findClassBuffer(@NotNull final String name) throws IOException {
+    return findClassBuffer(name, myListener);
+  }
+
+  /**
+   * Reports the read to the given listener instead of the listener of the classpath
+   */
+  @Nullable
+  ByteBuffer findClassBuffer(@NotNull final String name,
+                             @Nullable final ClassLoaderListener listener) throws IOException {
+    final ResourceEntry holder = myCache.get(name);
+    if (holder == null) return null;
+    if (listener == null) return holder.getBuffer();
+
+    final long start = System.nanoTime();
+    final ByteBuffer buffer = holder.getBuffer();
+    listener.entryRead(name, holder, ClassLoaderListener.Read.CLASS, buffer.remaining(), System.nanoTime() - start);
+    return buffer;
+  }
+
+  /**
+   * Sets the listener of entry reads and indexing or null to remove it.
+   * Set it before resources are added to see indexing events
+   */
+  public void setListener(@Nullable final ClassLoaderListener listener) {
+    myListener = listener;
+  }
+
+  /**
+   * Replaces the listener that was set by a loader of the classpath
+   */
+  void changeListener(@Nullable final ClassLoaderListener old, @Nullable final ClassLoaderListener listener) {
+    setListener(listener);
+  }
+
+  @NotNull
+  private static InputStream readStream(@NotNull final String name,
+                                        @NotNull final ResourceEntry entry,
+                                        @NotNull final ClassLoaderListener.Read read,
+                                        @Nullable final ClassLoaderListener listener) throws IOException {
+    if (listener == null) return entry.getStream();
+
+    final long start = System.nanoTime();
+    final InputStream stream = entry.getStream();
+    listener.entryRead(name, entry, read, entry.getSize(), System.nanoTime() - start);
+    return stream;
+  }
+
+  /**
+   * Drops the payload of the class entry once the class is defined,
+   * the class bytes are read from the source resource if requested again.
+   * Does nothing unless {@link #setReleaseDefinedClasses(boolean)} is enabled.
+   * The memory of an arena-backed entry is not reused
+   */
+  public void releaseClass(@NotNull final String name) {
+    if (!myReleaseClasses) return;
+
+    ResourceEntry entry = myCache.get(name);
+    if (entry instanceof CompositeEntry) entry = ((CompositeEntry) entry).getEntry();
+    if (entry instanceof ReleasableEntry) ((ReleasableEntry) entry).release();
+  }
+
+  /**
+   * Compacts the classpath once the startup is finished: drops decoded entries and cached URLs,
+   * releases classes that are shadowed by duplicates and trims the index.
+   * It is safe to call it with concurrent lookups and live updates, but not with concurrent additions
+   * if live updates are not enabled
+   */
+  public synchronized void compact() throws IOException {
+    myDecoded.clear();
+    myURLs.clear();
+
+    final ResourceIndex index = myCache;
+    final List<ResourceEntry> chain = new ArrayList<ResourceEntry>();
+    index.visit(new EntryVisitor() {
+      @Override
+      public void visit(@NotNull final String name, @NotNull final ResourceEntry entry) {
+        boolean changed = false;
+        chain.clear();
+        for (int i = 0; i < Entries.getCount(entry); i++) {
+          ResourceEntry item = Entries.getDuplicate(entry, i);
+          if (item instanceof ReleasableEntry) {
+            final ReleasableEntry releasable = (ReleasableEntry) item;
+            //a shadowed duplicate is never defined
+            if (!chain.isEmpty()) releasable.release();
+            if (releasable.isReleased()) {
+              item = releasable.getEntry();
+              changed = true;
+            }
+          }
+          chain.add(item);
+        }
+        if (!changed) return;
+
+        index.put(name, chain.size() == 1 ? chain.get(0) : new CompositeEntry(chain.toArray(new ResourceEntry[chain.size()])));
+      }
+    });
+
+    index.trim();
+  }
+
+  /**
+   * Starts a read of entry buffers, views returned by {@link #findClassBuffer(String)}
+   * of an arena classpath stay valid until the matching {@link #endRead()} call on the same thread
+   * @throws IOException if the classpath is closed
+   */
+  public void beginRead() throws IOException {
+    if (myArena != null) myArena.acquire();
+  }
+
+  public void endRead() {
+    if (myArena != null) myArena.release();
+  }
+
+  /**
+   * Releases the arena, if any, once running reads are done. Entries of the classpath must not be used after that
+   */
+  public void close() {
+    if (myArena != null) myArena.close();
   }
 
   @NotNull
@@ -144,7 +924,21 @@ public class ResourceClasspath {
     return n;
   }
 
-  private final URLStreamHandler HANDLER = new URLStreamHandler() {
+  /**
+   * Handler of a URL of the entry. The handler is shared by URLs that are created
+   * relative to the URL, such URLs are looked up by the name and the duplicate index
+   */
+  private class EntryHandler extends URLStreamHandler {
+    private final String myName;
+    private final int myIndex;
+    private final ResourceEntry myEntry;
+
+    private EntryHandler(@NotNull final String name, final int index, @NotNull final ResourceEntry entry) {
+      myName = name;
+      myIndex = index;
+      myEntry = entry;
+    }
+
     @Override
     protected URLConnection openConnection(@NotNull final URL u) throws IOException {
       if (!u.getProtocol().equals(PROTOCOL)) throw new IOException("Unsupported URL: " + u);
@@ -152,24 +946,88 @@ public class ResourceClasspath {
       final String name = trimSlashes(u.getPath());
       final int idx = u.getPort() - 42;
 
-      return new URLConnection(u) {
-        @Override
-        public void connect() throws IOException {
-        }
+      if (idx == myIndex && name.equals(myName)) return new EntryConnection(u, name, myEntry);
 
-        @Override
-        public InputStream getInputStream() throws IOException {
-          ResourceEntry holder = myCache.get(name);
-          for (int cnt = idx; cnt > 0 && holder != null; cnt--) {
-            holder = holder.getNextEntry();
-          }
+      final ResourceEntry holder = myCache.get(name);
+      if (holder == null || idx < 0 || idx >= Entries.getCount(holder)) throw new FileNotFoundException(name);
+      return new EntryConnection(u, name, Entries.getDuplicate(holder, idx));
+    }
 
-          if (holder == null) throw new FileNotFoundException(name);
-          return holder.getStream();
-        }
-      };
+    /**
+     * The host is the id of the classpath, URLs are compared and hashed with no DNS lookup
+     */
+    @Nullable
+    @Override
+    protected InetAddress getHostAddress(@NotNull final URL u) {
+      return null;
     }
-  };
+  }
+
+  /**
+   * Gives the entry of the URL to {@link ClassloaderResource}
+   */
+  class EntryConnection extends URLConnection {
+    private final String myName;
+    private final ResourceEntry myEntry;
+
+    private EntryConnection(@NotNull final URL url, @NotNull final String name, @NotNull final ResourceEntry entry) {
+      super(url);
+      myName = name;
+      myEntry = entry;
+    }
+
+    @NotNull
+    ResourceEntry getEntry() {
+      return myEntry;
+    }
+
+    @Override
+    public void connect() throws IOException {
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+      return readStream(myName, myEntry, ClassLoaderListener.Read.URL, myListener);
+    }
+
+    /**
+     * The size is known without decoding for most of the entries
+     */
+    @Override
+    public int getContentLength() {
+      return myEntry.getSize();
+    }
+
+    @Override
+    public String getHeaderField(@NotNull final String name) {
+      if (!"content-length".equalsIgnoreCase(name)) return null;
+      final int size = myEntry.getSize();
+      return size >= 0 ? String.valueOf(size) : null;
+    }
+  }
+
+  /**
+   * Entries of a resource, in the order of the resource
+   */
+  private static class Layer {
+    private final String myName;
+    private final List<ScannedEntry> myEntries;
+
+    private Layer(@NotNull final String name, @NotNull final List<ScannedEntry> entries) {
+      myName = name;
+      myEntries = entries;
+    }
+  }
+
+  private static class ScannedEntry {
+    private final String myName;
+    private final ResourceEntry myEntry;
+
+    private ScannedEntry(@NotNull final String name, @NotNull final ResourceEntry entry) {
+      myName = name;
+      myEntry = entry;
+    }
+  }
 
   private static final Enumeration<URL> EMPTY = new Enumeration<URL>() {
     @Override
@@ -188,6 +1046,7 @@ public class ResourceClasspath {
     return "ResourceClasspath{" +
             "myId='" + myId + "\', " +
             "items=" + myCache.size() +
+            (myArena != null ? ", " + myArena : "") +
             '}';
   }
 }
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.classes.resources.util.Streams;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Process-wide cache of indexed classpaths, loaders over the same list of resources share one classpath.
+ *
+ * A local file is identified by its path, size and modification time as in {@link ClasspathSnapshot},
+ * any other URL by the content length and modification time of its connection or,
+ * if the connection does not report them, by the SHA-256 digest of its content.
+ * A shared classpath is frozen once indexed, see {@link ResourceClasspath#freeze()},
+ * it does not accept new resources and does not release defined classes.
+ * It is closed when the last user calls {@link ResourceClasspath#close()},
+ * that is done by {@link ResourceClassLoader#close()}. The cache refers to classpaths weakly,
+ * a classpath of loaders that are never closed leaves the cache once the loaders are collected.
+ * Listeners of loaders are not set to a shared classpath, a loader reports reads it makes itself,
+ * reads via resource URLs are not reported
+ */
+public class SharedClasspaths {
+  private static final Map<List<String>, Ref> ourClasspaths = new HashMap<List<String>, Ref>();
+  private static final ReferenceQueue<SharedClasspath> ourQueue = new ReferenceQueue<SharedClasspath>();
+
+  /**
+   * @param resources URLs of resources, a resource shadows resources that come after it
+   * @return a shared classpath, the caller must close it once it is not used
+   */
+  @NotNull
+  public static ResourceClasspath acquire(final int parallelism,
+                                          @NotNull final URL... resources) throws IOException {
+    final List<String> key = new ArrayList<String>(resources.length);
+    final List<ResourceHolder> holders = new ArrayList<ResourceHolder>(resources.length);
+    for (int i = resources.length - 1; i >= 0; i--) {
+      final URLResource resource = new URLResource(resources[i]);
+      final File file = resource.getFile();
+      if (file != null) {
+        key.add(file.getAbsolutePath() + "#" + file.length() + "#" + file.lastModified());
+      } else {
+        key.add(resource.getResourceName() + "#" + version(resources[i]));
+      }
+      holders.add(resource);
+    }
+
+    SharedClasspath classpath;
+    synchronized (ourClasspaths) {
+      purge();
+      final Ref ref = ourClasspaths.get(key);
+      classpath = ref != null ? ref.get() : null;
+      if (classpath == null) {
+        classpath = new SharedClasspath(key);
+        ourClasspaths.put(key, new Ref(classpath));
+      } else {
+        classpath.myUsers++;
+      }
+    }
+
+    try {
+      classpath.index(holders, parallelism);
+    } catch (IOException e) {
+      classpath.close();
+      throw e;
+    }
+    return classpath;
+  }
+
+  /**
+   * @return number of classpaths in the cache
+   */
+  public static int size() {
+    synchronized (ourClasspaths) {
+      purge();
+      return ourClasspaths.size();
+    }
+  }
+
+  /**
+   * Guarded by {@link #ourClasspaths}
+   */
+  private static void purge() {
+    Ref ref;
+    while ((ref = (Ref) ourQueue.poll()) != null) {
+      if (ourClasspaths.get(ref.myKey) == ref) ourClasspaths.remove(ref.myKey);
+    }
+  }
+
+  /**
+   * Guarded by {@link #ourClasspaths}
+   */
+  private static void remove(@NotNull final SharedClasspath classpath) {
+    final Ref ref = ourClasspaths.get(classpath.myKey);
+    if (ref != null && ref.get() == classpath) ourClasspaths.remove(classpath.myKey);
+  }
+
+  @NotNull
+  private static String version(@NotNull final URL url) throws IOException {
+    final URLConnection connection = url.openConnection();
+    final long modified = connection.getLastModified();
+    final int length = connection.getContentLength();
+    if (modified > 0 && length >= 0) return length + "#" + modified;
+
+    //the content is not kept, it is indexed from the URL again
+    final InputStream stream = connection.getInputStream();
+    try {
+      return digest(stream);
+    } finally {
+      Streams.close(stream);
+    }
+  }
+
+  @NotNull
+  private static String digest(@NotNull final InputStream stream) throws IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("SHA-256 is not supported", e);
+    }
+
+    final byte[] buffer = new byte[Streams.CACHE_SIZE];
+    int read;
+    while ((read = stream.read(buffer)) >= 0) {
+      digest.update(buffer, 0, read);
+    }
+
+    final StringBuilder sb = new StringBuilder("sha256:");
+    for (byte b : digest.digest()) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
+  private static class Ref extends WeakReference<SharedClasspath> {
+    private final List<String> myKey;
+
+    private Ref(@NotNull final SharedClasspath classpath) {
+      super(classpath, ourQueue);
+      myKey = classpath.myKey;
+    }
+  }
+
+  private static class SharedClasspath extends ResourceClasspath {
+    private final List<String> myKey;
+    /**
+     * Guarded by {@link #ourClasspaths}
+     */
+    private int myUsers = 1;
+    /**
+     * Guarded by this
+     */
+    private boolean myIndexed = false;
+    @Nullable
+    private IOException myError = null;
+
+    private SharedClasspath(@NotNull final List<String> key) {
+      myKey = key;
+    }
+
+    /**
+     * The first user indexes resources, others wait for it
+     */
+    private synchronized void index(@NotNull final List<ResourceHolder> resources,
+                                    final int parallelism) throws IOException {
+      if (myIndexed) return;
+      if (myError != null) throw new IOException(myError.getMessage(), myError);
+
+      try {
+        super.addResources(resources, parallelism);
+        freeze();
+      } catch (IOException e) {
+        myError = e;
+        //the next acquire indexes the resources again
+        synchronized (ourClasspaths) {
+          remove(this);
+        }
+        throw e;
+      }
+      myIndexed = true;
+    }
+
+    @Override
+    public synchronized void addResource(@NotNull final ResourceHolder resource, final int parallelism) throws IOException {
+      checkNotIndexed();
+      super.addResource(resource, parallelism);
+    }
+
+    @Override
+    public synchronized void addResources(@NotNull final List<? extends ResourceHolder> resources, final int parallelism) throws IOException {
+      checkNotIndexed();
+      super.addResources(resources, parallelism);
+    }
+
+    private void checkNotIndexed() {
+      if (myIndexed) throw new IllegalStateException("Shared classpath does not accept new resources");
+    }
+
+    @Override
+    public void setReleaseDefinedClasses(final boolean release) {
+      if (release) throw new IllegalStateException("Classes of a shared classpath are defined by several loaders");
+    }
+
+    /**
+     * Listeners of loaders are not set to the classpath, every loader reports its own reads
+     */
+    @Override
+    void changeListener(@Nullable final ClassLoaderListener old, @Nullable final ClassLoaderListener listener) {
+    }
+
+    @Override
+    public void close() {
+      synchronized (ourClasspaths) {
+        if (--myUsers > 0) return;
+        remove(this);
+      }
+      super.close();
+    }
+  }
+}
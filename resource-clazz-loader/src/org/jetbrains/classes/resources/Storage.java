@@ -0,0 +1,83 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.zip.Deflater;
+
+/**
+ * Representation of an entry in memory, see {@link StoragePolicy}
+ */
+public final class Storage {
+  public enum Kind {
+    /**
+     * Uncompressed bytes
+     */
+    RAW,
+
+    /**
+     * Bytes compressed at a given level
+     */
+    DEFLATE,
+
+    /**
+     * The entry is kept as ingestion sees it, without compression or decompression:
+     * original bytes from the archive if the resource is read at random, uncompressed bytes otherwise
+     */
+    KEEP,
+  }
+
+  public static final Storage RAW = new Storage(Kind.RAW, 0);
+  public static final Storage KEEP = new Storage(Kind.KEEP, 0);
+  public static final Storage DEFLATE = new Storage(Kind.DEFLATE, Deflater.DEFAULT_COMPRESSION);
+
+  private final Kind myKind;
+  private final int myLevel;
+
+  private Storage(@NotNull final Kind kind, final int level) {
+    myKind = kind;
+    myLevel = level;
+  }
+
+  /**
+   * @param level compression level from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+   */
+  @NotNull
+  public static Storage deflate(final int level) {
+    if (level == Deflater.DEFAULT_COMPRESSION) return DEFLATE;
+    if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) throw new IllegalArgumentException("Unsupported level: " + level);
+    return new Storage(Kind.DEFLATE, level);
+  }
+
+  @NotNull
+  public Kind getKind() {
+    return myKind;
+  }
+
+  /**
+   * @return compression level for {@link Kind#DEFLATE}
+   */
+  public int getLevel() {
+    return myLevel;
+  }
+
+  @Override
+  public String toString() {
+    return myKind == Kind.DEFLATE ? "DEFLATE(" + myLevel + ")" : myKind.name();
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Decides how {@link ResourceClasspath} keeps an entry. A compressed entry,
+ * that is not smaller than its raw bytes, is always kept raw.
+ * See {@link StoragePresets} for predefined policies
+ */
+public interface StoragePolicy {
+  /**
+   * @param name entry name
+   * @param size uncompressed size of the entry
+   * @param compressedSize size of the entry in the archive or -1 if it is unknown.
+   *                       It is equal to the size for entries that are stored without compression
+   * @return storage for the entry
+   */
+  @NotNull
+  Storage getStorage(@NotNull String name, int size, long compressedSize);
+}
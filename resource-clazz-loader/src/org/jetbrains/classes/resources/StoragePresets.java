@@ -0,0 +1,88 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.zip.Deflater;
+
+import static org.jetbrains.classes.resources.util.Streams.GZIP_SIZE;
+
+public enum StoragePresets implements StoragePolicy {
+  /**
+   * Entries larger than {@link org.jetbrains.classes.resources.util.Streams#GZIP_SIZE} are compressed
+   */
+  DEFAULT {
+    @NotNull
+    @Override
+    public Storage getStorage(@NotNull final String name, final int size, final long compressedSize) {
+      return size <= GZIP_SIZE ? Storage.RAW : Storage.DEFLATE;
+    }
+  },
+
+  /**
+   * Compressible entries are compressed at the best level, already compressed data is kept raw
+   */
+  MIN_MEMORY {
+    private final Storage BEST = Storage.deflate(Deflater.BEST_COMPRESSION);
+
+    @NotNull
+    @Override
+    public Storage getStorage(@NotNull final String name, final int size, final long compressedSize) {
+      if (size <= GZIP_SIZE) return Storage.RAW;
+      if (isCompressed(name)) return Storage.RAW;
+      if (compressedSize >= 0 && compressedSize < size && compressedSize * 20 >= size * 19L) return Storage.RAW;
+      return BEST;
+    }
+  },
+
+  /**
+   * Nothing is compressed. Classes are read only once, so they are
+   * kept as is to be inflated (if needed) only when loaded
+   */
+  MIN_CPU {
+    @NotNull
+    @Override
+    public Storage getStorage(@NotNull final String name, final int size, final long compressedSize) {
+      if (size <= GZIP_SIZE) return Storage.RAW;
+      return name.endsWith(".class") ? Storage.KEEP : Storage.RAW;
+    }
+  },
+
+  /**
+   * Every entry is kept as ingestion sees it, see {@link Storage.Kind#KEEP}
+   */
+  AS_IS {
+    @NotNull
+    @Override
+    public Storage getStorage(@NotNull final String name, final int size, final long compressedSize) {
+      return Storage.KEEP;
+    }
+  },
+  ;
+
+  private static final String[] COMPRESSED_EXTENSIONS = {
+          ".png", ".jpg", ".jpeg", ".gif", ".jar", ".zip", ".gz", ".bz2", ".xz",
+  };
+
+  private static boolean isCompressed(@NotNull final String name) {
+    for (String ext : COMPRESSED_EXTENSIONS) {
+      if (name.regionMatches(true, name.length() - ext.length(), ext, 0, ext.length())) return true;
+    }
+    return false;
+  }
+}
@@ -17,9 +17,12 @@
 package org.jetbrains.classes.resources;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
 
 /**
@@ -45,4 +48,25 @@ public class URLResource implements ResourceHolder {
   public InputStream getContent() throws IOException {
     return myURL.openStream();
   }
+
+  /**
+   * @return the local file of a {@code file:} URL or null,
+   * {@link ResourceClasspath} maps such a file instead of reading the URL stream
+   */
+  @Nullable
+  public File getFile() {
+    if (!"file".equals(myURL.getProtocol())) return null;
+    if (myURL.getHost() != null && myURL.getHost().length() > 0) return null;
+
+    File file;
+    try {
+      file = new File(myURL.toURI());
+    } catch (URISyntaxException e) {
+      //e.g. spaces are not escaped in the URL
+      file = new File(myURL.getPath());
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    return file.isFile() ? file : null;
+  }
 }
@@ -16,14 +16,27 @@
 
 package org.jetbrains.classes.resources.entry;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 /**
  * Created 26.07.13 13:12
  *
  * @author Eugene Petrenko (eugene.petrenko@jetbrains.com)
  */
 public abstract class BaseEntry implements ResourceEntry {
+  @NotNull
+  public ByteBuffer getBuffer() throws IOException {
+    return ByteBuffer.wrap(getBytes());
+  }
+
+  public int getSize() {
+    return -1;
+  }
+
   @Nullable
   public ResourceEntry getNextEntry() {
     return null;
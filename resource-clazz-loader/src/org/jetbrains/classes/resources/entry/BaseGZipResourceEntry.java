@@ -17,11 +17,13 @@
 package org.jetbrains.classes.resources.entry;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.util.Inflaters;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.GZIPInputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.ZipException;
 
 /**
  * Created 26.07.13 12:12
@@ -35,9 +37,21 @@ public abstract class BaseGZipResourceEntry extends BaseEntry {
     myData = data;
   }
 
+  @NotNull
+  @Override
+  public byte[] getBytes() throws IOException {
+    final int size = getSize();
+    if (size < 0) throw new ZipException("Not in GZIP format");
+
+    final byte[] result = new byte[size];
+    Inflaters.gunzip(ByteBuffer.wrap(myData), result, 0, result.length);
+    return result;
+  }
+
   @Override
   @NotNull
   public InputStream getStream() throws IOException {
-    return new GZIPInputStream(new ByteArrayInputStream(myData));
+    //entries are small, decoding at once takes no extra inflater buffers
+    return new ByteArrayInputStream(getBytes());
   }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.entry;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.classes.resources.util.ByteBufferInputStream;
+import org.jetbrains.classes.resources.util.OffHeapArena;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Uncompressed entry data in a (possibly direct or memory-mapped) buffer
+ */
+public class BufferEntry extends BaseEntry {
+  private final ByteBuffer myData;
+  @Nullable
+  private final OffHeapArena myArena;
+
+  public BufferEntry(@NotNull final ByteBuffer data) {
+    this(data, null);
+  }
+
+  /**
+   * @param data entry bytes
+   * @param arena the arena that holds the data or null
+   */
+  public BufferEntry(@NotNull final ByteBuffer data,
+                     @Nullable final OffHeapArena arena) {
+    myData = data;
+    myArena = arena;
+  }
+
+  /**
+   * @return a view of entry bytes, the data of an arena is copied unless the arena is held
+   * @see OffHeapArena#share(ByteBuffer)
+   */
+  @NotNull
+  @Override
+  public ByteBuffer getBuffer() throws IOException {
+    if (myArena != null) return myArena.share(myData);
+    return myData.duplicate();
+  }
+
+  @NotNull
+  @Override
+  public byte[] getBytes() throws IOException {
+    final byte[] result = new byte[myData.remaining()];
+    if (myArena == null) {
+      myData.duplicate().get(result);
+      return result;
+    }
+
+    myArena.acquire();
+    try {
+      myData.duplicate().get(result);
+    } finally {
+      myArena.release();
+    }
+    return result;
+  }
+
+  @Override
+  public int getSize() {
+    return myData.remaining();
+  }
+
+  @NotNull
+  @Override
+  public InputStream getStream() throws IOException {
+    return myArena != null ? myArena.openStream(myData) : new ByteBufferInputStream(myData);
+  }
+}
@@ -47,6 +47,11 @@ public class BytesEntry extends BaseEntry {
     return new ByteArrayInputStream(myData);
   }
 
+  @Override
+  public int getSize() {
+    return myData.length;
+  }
+
   @Nullable
   @Override
   public ResourceEntry getNextEntry() {
@@ -20,39 +20,100 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
+ * All duplicates of a name, the first entry wins.
+ * Duplicates are kept in an array, so any of them is available at once
+ *
  * Created 26.07.13 12:14
  *
  * @author Eugene Petrenko (eugene.petrenko@jetbrains.com)
  */
 public class CompositeEntry implements ResourceEntry {
-  private final ResourceEntry myEntry;
-  private final ResourceEntry myNextEntry;
+  private final ResourceEntry[] myEntries;
+  private final int myOffset;
 
   public CompositeEntry(@NotNull ResourceEntry entry,
                         @NotNull ResourceEntry nextEntry) {
     if (entry.getNextEntry() != null) throw new RuntimeException("First entry should not have next child entries");
 
-    myEntry = entry;
-    myNextEntry = nextEntry;
+    final int count = Entries.getCount(nextEntry);
+    myEntries = new ResourceEntry[count + 1];
+    myEntries[0] = entry;
+    for (int i = 0; i < count; i++) {
+      myEntries[i + 1] = Entries.getDuplicate(nextEntry, i);
+    }
+    myOffset = 0;
+  }
+
+  /**
+   * @param entries duplicates of a name without next entries, at least two
+   */
+  public CompositeEntry(@NotNull final ResourceEntry[] entries) {
+    this(entries.clone(), 0);
+    if (entries.length < 2) throw new IllegalArgumentException("At least two entries are expected");
+    for (ResourceEntry entry : entries) {
+      if (entry.getNextEntry() != null) throw new RuntimeException("Entries should not have next child entries");
+    }
+  }
+
+  private CompositeEntry(@NotNull final ResourceEntry[] entries, final int offset) {
+    myEntries = entries;
+    myOffset = offset;
   }
 
   @Override
   @NotNull
   public byte[] getBytes() throws IOException {
-    return myEntry.getBytes();
+    return getEntry().getBytes();
   }
 
   @Override
   @NotNull
   public InputStream getStream() throws IOException {
-    return myEntry.getStream();
+    return getEntry().getStream();
+  }
+
+  @Override
+  @NotNull
+  public ByteBuffer getBuffer() throws IOException {
+    return getEntry().getBuffer();
+  }
+
+  /**
+   * @return the first entry of the chain
+   */
+  @NotNull
+  public ResourceEntry getEntry() {
+    return myEntries[myOffset];
+  }
+
+  /**
+   * @return the i-th duplicate, the first entry is at 0
+   */
+  @NotNull
+  public ResourceEntry getEntry(final int i) {
+    if (i < 0 || i >= getCount()) throw new IndexOutOfBoundsException("No entry " + i + " of " + getCount());
+    return myEntries[myOffset + i];
+  }
+
+  public int getCount() {
+    return myEntries.length - myOffset;
+  }
+
+  @Override
+  public int getSize() {
+    return getEntry().getSize();
   }
 
+  /**
+   * @return a view of the rest of the duplicates
+   */
   @NotNull
   @Override
   public ResourceEntry getNextEntry() {
-    return myNextEntry;
+    if (myOffset + 2 == myEntries.length) return myEntries[myOffset + 1];
+    return new CompositeEntry(myEntries, myOffset + 1);
   }
 }
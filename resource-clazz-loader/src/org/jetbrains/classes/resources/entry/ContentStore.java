@@ -0,0 +1,151 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.classes.resources.entry;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entries by content: entries of equal bytes share one payload, whatever their names are.
+ *
+ * Entries are looked up by the uncompressed size and CRC32, the bytes are compared
+ * on a match, so a collision is never shared. The store may be given to several classpaths,
+ * a stored entry is only weakly held, it is dropped once no classpath uses it.
+ *
+ * A shared entry keeps the storage that the {@link org.jetbrains.classes.resources.StoragePolicy}
+ * of the classpath that stored it first has chosen, policies of other classpaths are not applied to it
+ */
+public class ContentStore {
+  private final ConcurrentMap<Long, Ref> myEntries = new ConcurrentHashMap<Long, Ref>();
+  private final ReferenceQueue<ResourceEntry> myQueue = new ReferenceQueue<ResourceEntry>();
+  private final AtomicLong mySharedEntries = new AtomicLong();
+  private final AtomicLong mySharedBytes = new AtomicLong();
+
+  /**
+   * @return true if an entry of the size and CRC was stored, the bytes may still differ
+   */
+  public boolean mightContain(final long crc, final int size) {
+    return myEntries.containsKey(key(crc, size));
+  }
+
+  /**
+   * @return the stored entry with the same bytes or null
+   */
+  @Nullable
+  public ResourceEntry find(final long crc,
+                            @NotNull final byte[] data,
+                            final int size) throws IOException {
+    final Ref ref = myEntries.get(key(crc, size));
+    final ResourceEntry entry = ref == null ? null : ref.get();
+    if (entry == null || !sameBytes(entry.getBytes(), data, size)) return null;
+
+    mySharedEntries.incrementAndGet();
+    mySharedBytes.addAndGet(size);
+    return entry;
+  }
+
+  /**
+   * Stores the entry unless there is an entry of the same size and CRC already,
+   * the entry must not depend on the classpath it was created for
+   */
+  public void put(final long crc,
+                  final int size,
+                  @NotNull final ResourceEntry entry) {
+    purge();
+
+    final Long key = key(crc, size);
+    final Ref ref = new Ref(key, entry, myQueue);
+    while (true) {
+      final Ref stored = myEntries.putIfAbsent(key, ref);
+      if (stored == null) return;
+      if (stored.get() != null) return;
+      //the stored entry is collected, but not purged yet
+      if (myEntries.replace(key, stored, ref)) return;
+    }
+  }
+
+  /**
+   * @return number of stored payloads that are used
+   */
+  public int size() {
+    purge();
+    return myEntries.size();
+  }
+
+  /**
+   * @return number of entries that were shared instead of being stored again
+   */
+  public long getSharedEntries() {
+    return mySharedEntries.get();
+  }
+
+  /**
+   * @return total uncompressed size of the shared entries
+   */
+  public long getSharedBytes() {
+    return mySharedBytes.get();
+  }
+
+  private void purge() {
+    Ref ref;
+    while ((ref = (Ref) myQueue.poll()) != null) {
+      myEntries.remove(ref.myKey, ref);
+    }
+  }
+
+  @NotNull
+  private static Long key(final long crc, final int size) {
+    return ((long) size << 32) | (crc & 0xFFFFFFFFL);
+  }
+
+  private static boolean sameBytes(@NotNull final byte[] stored,
+                                   @NotNull final byte[] data,
+                                   final int size) {
+    if (stored.length != size) return false;
+    for (int i = 0; i < size; i++) {
+      if (stored[i] != data[i]) return false;
+    }
+    return true;
+  }
+
+  private static class Ref extends WeakReference<ResourceEntry> {
+    private final Long myKey;
+
+    private Ref(@NotNull final Long key,
+                @NotNull final ResourceEntry entry,
+                @NotNull final ReferenceQueue<ResourceEntry> queue) {
+      super(entry, queue);
+      myKey = key;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ContentStore{" +
+            "size=" + size() + ", " +
+            "shared=" + getSharedEntries() + "/" + getSharedBytes() +
+            '}';
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.entry;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.util.Streams;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.ZipEntry;
+
+/**
+ * Raw deflate data of an entry, as it was stored in the archive
+ */
+public class DeflatedEntry extends BaseEntry {
+  private final int mySize;
+  private final int myCrc;
+  private final byte[] myData;
+
+  public DeflatedEntry(final int actualSize,
+                       final int crc,
+                       @NotNull final byte[] data) {
+    mySize = actualSize;
+    myCrc = crc;
+    myData = data;
+  }
+
+  @NotNull
+  @Override
+  public byte[] getBytes() throws IOException {
+    return Streams.inflate(ZipEntry.DEFLATED, ByteBuffer.wrap(myData), mySize, myCrc);
+  }
+
+  @NotNull
+  @Override
+  public InputStream getStream() throws IOException {
+    return new ByteArrayInputStream(getBytes());
+  }
+
+  @Override
+  public int getSize() {
+    return mySize;
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.entry;
+
+import org.jetbrains.annotations.NotNull;
+
+public class Entries {
+  /**
+   * @return the entry that holds the data of the first duplicate,
+   * i.e. without {@link CompositeEntry} and {@link ReleasableEntry} wrappers
+   */
+  @NotNull
+  public static ResourceEntry unwrap(@NotNull ResourceEntry entry) {
+    if (entry instanceof CompositeEntry) entry = ((CompositeEntry) entry).getEntry();
+    if (entry instanceof ReleasableEntry) entry = ((ReleasableEntry) entry).getEntry();
+    return entry;
+  }
+
+  /**
+   * @return number of duplicates of the entry
+   */
+  public static int getCount(@NotNull final ResourceEntry entry) {
+    if (entry instanceof CompositeEntry) return ((CompositeEntry) entry).getCount();
+
+    int count = 0;
+    for (ResourceEntry e = entry; e != null; e = e.getNextEntry()) count++;
+    return count;
+  }
+
+  /**
+   * @return the i-th duplicate of the entry without next entries
+   */
+  @NotNull
+  public static ResourceEntry getDuplicate(@NotNull final ResourceEntry entry, final int i) {
+    if (entry instanceof CompositeEntry) return ((CompositeEntry) entry).getEntry(i);
+
+    ResourceEntry e = entry;
+    for (int cnt = i; cnt > 0 && e != null; cnt--) e = e.getNextEntry();
+    if (e == null) throw new IndexOutOfBoundsException("No entry " + i);
+    return e instanceof CompositeEntry ? ((CompositeEntry) e).getEntry() : e;
+  }
+}
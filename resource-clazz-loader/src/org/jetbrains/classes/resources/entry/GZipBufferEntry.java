@@ -0,0 +1,83 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.entry;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.classes.resources.util.Inflaters;
+import org.jetbrains.classes.resources.util.OffHeapArena;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * GZipped entry data of a known size in a (possibly direct or memory-mapped) buffer
+ */
+public class GZipBufferEntry extends BaseEntry {
+  private final int mySize;
+  private final ByteBuffer myData;
+  @Nullable
+  private final OffHeapArena myArena;
+
+  public GZipBufferEntry(final int actualSize, @NotNull final ByteBuffer data) {
+    this(actualSize, data, null);
+  }
+
+  /**
+   * @param actualSize size of the data after decompression
+   * @param data gzipped bytes
+   * @param arena the arena that holds the data or null
+   */
+  public GZipBufferEntry(final int actualSize,
+                         @NotNull final ByteBuffer data,
+                         @Nullable final OffHeapArena arena) {
+    mySize = actualSize;
+    myData = data;
+    myArena = arena;
+  }
+
+  @NotNull
+  @Override
+  public byte[] getBytes() throws IOException {
+    final byte[] result = new byte[mySize];
+    if (myArena == null) {
+      Inflaters.gunzip(myData, result, 0, mySize);
+      return result;
+    }
+
+    myArena.acquire();
+    try {
+      Inflaters.gunzip(myData, result, 0, mySize);
+    } finally {
+      myArena.release();
+    }
+    return result;
+  }
+
+  @NotNull
+  @Override
+  public InputStream getStream() throws IOException {
+    return new ByteArrayInputStream(getBytes());
+  }
+
+  @Override
+  public int getSize() {
+    return mySize;
+  }
+}
@@ -17,9 +17,9 @@
 package org.jetbrains.classes.resources.entry;
 
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.classes.resources.util.Streams;
+import org.jetbrains.classes.resources.util.Inflaters;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Created 26.07.13 16:06
@@ -31,9 +31,11 @@ public class GZipResourceEntry extends BaseGZipResourceEntry {
     super(data);
   }
 
-  @NotNull
+  /**
+   * @return size from the gzip trailer
+   */
   @Override
-  public byte[] getBytes() throws IOException {
-    return Streams.readFully(getStream());
+  public int getSize() {
+    return Inflaters.gzipSize(ByteBuffer.wrap(myData));
   }
 }
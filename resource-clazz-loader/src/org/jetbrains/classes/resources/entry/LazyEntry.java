@@ -0,0 +1,84 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.entry;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.util.DecodedCache;
+import org.jetbrains.classes.resources.util.ZipArchive;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.ZipEntry;
+
+/**
+ * An entry of an archive, that is decoded on the first access.
+ * Decoded bytes are kept in the shared cache
+ */
+public class LazyEntry extends BaseEntry {
+  private final ZipArchive myArchive;
+  private final int myIndex;
+  private final DecodedCache myCache;
+
+  public LazyEntry(@NotNull final ZipArchive archive,
+                   final int index,
+                   @NotNull final DecodedCache cache) {
+    myArchive = archive;
+    myIndex = index;
+    myCache = cache;
+  }
+
+  @NotNull
+  @Override
+  public byte[] getBytes() throws IOException {
+    byte[] data = myCache.get(this);
+    if (data != null) return data;
+
+    data = myArchive.getBytes(myIndex);
+    myCache.put(this, data);
+    return data;
+  }
+
+  @Override
+  public int getSize() {
+    return myArchive.getSize(myIndex);
+  }
+
+  @NotNull
+  @Override
+  public InputStream getStream() throws IOException {
+    //a stored entry is read right from the archive
+    if (isStored() || !myCache.accepts(myArchive.getSize(myIndex))) return myArchive.getStream(myIndex);
+    return new ByteArrayInputStream(getBytes());
+  }
+
+  /**
+   * A stored entry is not copied, the buffer is a view of the archive,
+   * e.g. of the mapped jar file
+   */
+  @NotNull
+  @Override
+  public ByteBuffer getBuffer() throws IOException {
+    if (isStored()) return myArchive.getRawData(myIndex).asReadOnlyBuffer();
+    return super.getBuffer();
+  }
+
+  private boolean isStored() {
+    return myArchive.getMethod(myIndex) == ZipEntry.STORED;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.entry;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.ResourceHolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Class entry that drops its payload once the class is defined.
+ * The entry is read again from the source resource after that
+ */
+public class ReleasableEntry extends BaseEntry {
+  private final ResourceHolder mySource;
+  private final String myName;
+  private volatile ResourceEntry myEntry;
+  private volatile boolean myReleased = false;
+
+  /**
+   * @param entry payload of the entry
+   * @param source the resource to read the entry from on release
+   * @param name the entry name in the resource
+   */
+  public ReleasableEntry(@NotNull final ResourceEntry entry,
+                         @NotNull final ResourceHolder source,
+                         @NotNull final String name) {
+    myEntry = entry;
+    mySource = source;
+    myName = name;
+  }
+
+  /**
+   * Replaces the payload with a scan of the source resource
+   */
+  public void release() {
+    if (myReleased) return;
+    myEntry = new ScanEntry(mySource, myName);
+    myReleased = true;
+  }
+
+  public boolean isReleased() {
+    return myReleased;
+  }
+
+  /**
+   * @return the entry that actually serves the data
+   */
+  @NotNull
+  public ResourceEntry getEntry() {
+    return myEntry;
+  }
+
+  @NotNull
+  @Override
+  public byte[] getBytes() throws IOException {
+    return myEntry.getBytes();
+  }
+
+  @NotNull
+  @Override
+  public InputStream getStream() throws IOException {
+    return myEntry.getStream();
+  }
+
+  @NotNull
+  @Override
+  public ByteBuffer getBuffer() throws IOException {
+    return myEntry.getBuffer();
+  }
+
+  @Override
+  public int getSize() {
+    return myEntry.getSize();
+  }
+}
@@ -21,6 +21,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Created 26.07.13 12:12
@@ -34,6 +35,18 @@ public interface ResourceEntry {
   @NotNull
   InputStream getStream() throws IOException;
 
+  /**
+   * @return entry bytes, the buffer could be a view of direct memory,
+   * that is only valid while the owning classpath is not closed
+   */
+  @NotNull
+  ByteBuffer getBuffer() throws IOException;
+
+  /**
+   * @return uncompressed size of the entry or -1 if it is not known without reading the entry
+   */
+  int getSize();
+
   @Nullable
   ResourceEntry getNextEntry();
 }
@@ -21,7 +21,6 @@ import org.jetbrains.classes.resources.ResourceHolder;
 import org.jetbrains.classes.resources.util.SearchingZipScan;
 import org.jetbrains.classes.resources.util.Streams;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.zip.ZipEntry;
@@ -38,8 +37,21 @@ public class ScanEntry extends BaseEntry {
 
   public ScanEntry(@NotNull final ResourceHolder entry,
                    @NotNull final ZipEntry ze) {
+    this(entry, ze.getName());
+  }
+
+  public ScanEntry(@NotNull final ResourceHolder entry,
+                   @NotNull final String name) {
     myEntry = entry;
-    myName = ze.getName();
+    myName = name;
+  }
+
+  /**
+   * @return the archive that is scanned for the entry
+   */
+  @NotNull
+  public ResourceHolder getResource() {
+    return myEntry;
   }
 
   @NotNull
@@ -61,16 +73,13 @@ public class ScanEntry extends BaseEntry {
                                          @NotNull final String name,
                                          @NotNull final ZipInputStream stream) throws IOException {
 
-      final int entrySize = (int) ze.getSize();
-      final int size = entrySize > 0 ? entrySize : 65536;
-
-      final ByteArrayOutputStream bos = new ByteArrayOutputStream(size);
-      Streams.copyStreams(new byte[size], stream, bos);
-
-      bos.close();
-      stream.close();
-
-      return bos.toByteArray();
+      //the size is only known ahead if the entry has no data descriptor
+      final long size = ze.getSize();
+      try {
+        return size >= 0 ? Streams.readExactly(stream, (int) size) : Streams.readFully(stream);
+      } finally {
+        stream.close();
+      }
     }
   };
 
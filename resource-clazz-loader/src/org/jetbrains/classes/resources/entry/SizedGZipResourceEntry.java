@@ -18,10 +18,6 @@ package org.jetbrains.classes.resources.entry;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.io.EOFException;
-import java.io.IOException;
-import java.io.InputStream;
-
 /**
  * Created 26.07.13 12:11
  *
@@ -36,19 +32,7 @@ public class SizedGZipResourceEntry extends BaseGZipResourceEntry {
   }
 
   @Override
-  @NotNull
-  public byte[] getBytes() throws IOException {
-    byte[] result = new byte[mySize];
-    final InputStream stream = getStream();
-    int i = 0;
-    while(i < mySize) {
-      int read = stream.read(result, i, mySize - i);
-      if (read <= 0) throw new EOFException();
-      i += read;
-    }
-    if (stream.read() >= 0) {
-      throw new IndexOutOfBoundsException();
-    }
-    return result;
+  public int getSize() {
+    return mySize;
   }
 }
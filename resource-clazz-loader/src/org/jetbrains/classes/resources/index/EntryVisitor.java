@@ -0,0 +1,30 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.index;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.entry.ResourceEntry;
+
+import java.io.IOException;
+
+public interface EntryVisitor {
+  /**
+   * @param name full resource name
+   * @param entry the entry, all duplicates of the name are available via {@link ResourceEntry#getNextEntry()}
+   */
+  void visit(@NotNull String name, @NotNull ResourceEntry entry) throws IOException;
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.classes.resources.index;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.classes.resources.entry.ResourceEntry;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-only index of a finished classpath, see {@link #build(ResourceIndex)}.
+ *
+ * Names are placed by a minimal perfect hash (hash and displace): the hash of a name selects
+ * a bucket, the displacement of the bucket selects the slot, so a lookup reads one slot
+ * and compares one name. A name is kept as its package, that is shared by all names of
+ * the package, and the rest of the name as modified UTF-8 bytes in a common array.
+ * There are no objects per name, only primitive arrays and the array of entries.
+ *
+ * Names can not be added. Replacing an entry of an existing name is safe with concurrent reads,
+ * otherwise the index is immutable and is safe to read from any thread
+ */
+public class FrozenIndex implements ResourceIndex {
+  private static final int MIN_FILTER_CAPACITY = 1024;
+
+  private final Table myNames;
+  private final Table myPackages;
+  /**
+   * Packages by slot with the trailing '/', e.g. {@code a/b/}, or an empty string for the root
+   */
+  private final String[] myPackageNames;
+  /**
+   * The package slot of the name of every slot
+   */
+  private final int[] myNamePackages;
+  /**
+   * Bytes of the name of a slot without the package are {@code [myNameOffsets[slot], myNameOffsets[slot + 1])}
+   */
+  private final int[] myNameOffsets;
+  private final byte[] myNameBytes;
+  private final AtomicReferenceArray<ResourceEntry> myEntries;
+  private final NameFilter myFilter;
+
+  private FrozenIndex(@NotNull final Table names,
+                      @NotNull final Table packages,
+                      @NotNull final String[] packageNames,
+                      @NotNull final int[] namePackages,
+                      @NotNull final int[] nameOffsets,
+                      @NotNull final byte[] nameBytes,
+                      @NotNull final ResourceEntry[] entries,
+                      @NotNull final NameFilter filter) {
+    myNames = names;
+    myPackages = packages;
+    myPackageNames = packageNames;
+    myNamePackages = namePackages;
+    myNameOffsets = nameOffsets;
+    myNameBytes = nameBytes;
+    myEntries = new AtomicReferenceArray<ResourceEntry>(entries);
+    myFilter = filter;
+  }
+
+  /**
+   * @return the index with all names and entries of the source or null if no perfect hash was found,
+   * that is not expected unless there are many names with equal hashes
+   */
+  @Nullable
+  public static FrozenIndex build(@NotNull final ResourceIndex source) throws IOException {
+    final List<String> names = new ArrayList<String>(source.size());
+    final List<ResourceEntry> entries = new ArrayList<ResourceEntry>(source.size());
+    source.visit(new EntryVisitor() {
+      @Override
+      public void visit(@NotNull final String name, @NotNull final ResourceEntry entry) {
+        names.add(name);
+        entries.add(entry);
+      }
+    });
+
+    final Set<String> packageSet = new LinkedHashSet<String>();
+    for (String name : names) {
+      packageSet.add(name.substring(0, name.lastIndexOf('/') + 1));
+    }
+    final List<String> packages = new ArrayList<String>(packageSet);
+
+    final Table nameTable = Table.build(names);
+    final Table packageTable = Table.build(packages);
+    if (nameTable == null || packageTable == null) return null;
+
+    final String[] packageNames = new String[packages.size()];
+    for (String pkg : packages) {
+      packageNames[packageTable.slot(pkg, 0, pkg.length(), '/')] = pkg;
+    }
+
+    final int size = names.size();
+    final int[] namePackages = new int[size];
+    final String[] simpleNames = new String[size];
+    final ResourceEntry[] slotEntries = new ResourceEntry[size];
+    final NameFilter filter = new NameFilter(Math.max(MIN_FILTER_CAPACITY, size * 2));
+    for (int i = 0; i < size; i++) {
+      final String name = names.get(i);
+      final int slot = nameTable.slot(name, 0, name.length(), '/');
+      final int start = name.lastIndexOf('/') + 1;
+      namePackages[slot] = packageTable.slot(name, 0, start, '/');
+      simpleNames[slot] = name.substring(start);
+      slotEntries[slot] = entries.get(i);
+      filter.add(name.hashCode());
+    }
+
+    final int[] nameOffsets = new int[size + 1];
+    for (int i = 0; i < size; i++) {
+      nameOffsets[i + 1] = nameOffsets[i] + utfLength(simpleNames[i]);
+    }
+    final byte[] nameBytes = new byte[nameOffsets[size]];
+    for (int i = 0; i < size; i++) {
+      writeUtf(simpleNames[i], nameBytes, nameOffsets[i]);
+    }
+
+    return new FrozenIndex(nameTable, packageTable, packageNames, namePackages, nameOffsets, nameBytes, slotEntries, filter);
+  }
+
+  @Nullable
+  @Override
+  public ResourceEntry get(@NotNull final String name) {
+    if (!myFilter.mightContain(name)) return null;
+
+    final int slot = find(name);
+    return slot >= 0 ? myEntries.get(slot) : null;
+  }
+
+  /**
+   * Replaces the entry of a name of the index
+   * @throws IllegalStateException if there is no such name, names can not be added
+   */
+  @Nullable
+  @Override
+  public ResourceEntry put(@NotNull final String name, @NotNull final ResourceEntry entry) {
+    final int slot = find(name);
+    if (slot < 0) throw new IllegalStateException("Frozen index does not accept new name " + name);
+
+    return myEntries.getAndSet(slot, entry);
+  }
+
+  private int find(@NotNull final String name) {
+    if (myEntries.length() == 0) return -1;
+
+    final int slot = myNames.slot(name, 0, name.length(), '/');
+    final int start = name.lastIndexOf('/') + 1;
+    if (!isPackage(myNamePackages[slot], name, start, '/')) return -1;
+    return isSimpleName(slot, name, start) ? slot : -1;
+  }
+
+  @Override
+  public boolean hasPackageOf(@NotNull final String name, final char separator) {
+    if (myPackageNames.length == 0) return false;
+
+    final int end = name.lastIndexOf(separator) + 1;
+    return isPackage(myPackages.slot(name, 0, end, separator), name, end, separator);
+  }
+
+  /**
+   * @param end the end of the package in the name, the separator included
+   */
+  private boolean isPackage(final int slot,
+                            @NotNull final String name,
+                            final int end,
+                            final char separator) {
+    final String pkg = myPackageNames[slot];
+    if (pkg.length() != end) return false;
+
+    for (int i = 0; i < end; i++) {
+      final char c = name.charAt(i);
+      if ((c == separator ? '/' : c) != pkg.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  private boolean isSimpleName(final int slot,
+                               @NotNull final String name,
+                               final int start) {
+    final byte[] bytes = myNameBytes;
+    final int to = myNameOffsets[slot + 1];
+    int pos = myNameOffsets[slot];
+
+    for (int i = start; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      if (c > 0 && c < 0x80) {
+        if (pos >= to || bytes[pos++] != c) return false;
+      } else if (c < 0x800) {
+        if (pos + 2 > to) return false;
+        if (bytes[pos++] != (byte) (0xC0 | (c >> 6))) return false;
+        if (bytes[pos++] != (byte) (0x80 | (c & 0x3F))) return false;
+      } else {
+        if (pos + 3 > to) return false;
+        if (bytes[pos++] != (byte) (0xE0 | (c >> 12))) return false;
+        if (bytes[pos++] != (byte) (0x80 | ((c >> 6) & 0x3F))) return false;
+        if (bytes[pos++] != (byte) (0x80 | (c & 0x3F))) return false;
+      }
+    }
+    return pos == to;
+  }
+
+  @Override
+  public boolean mightContainClass(@NotNull final String className) {
+    return myFilter.mightContainClass(className);
+  }
+
+  @Override
+  public int size() {
+    return myEntries.length();
+  }
+
+  /**
+   * The index has no spare memory
+   */
+  @Override
+  public void trim() {
+  }
+
+  @Override
+  public void visit(@NotNull final EntryVisitor visitor) throws IOException {
+    for (int slot = 0; slot < myEntries.length(); slot++) {
+      visitor.visit(myPackageNames[myNamePackages[slot]] + readUtf(slot), myEntries.get(slot));
+    }
+  }
+
+  @NotNull
+  private String readUtf(final int slot) {
+    final byte[] bytes = myNameBytes;
+    final int to = myNameOffsets[slot + 1];
+    final StringBuilder sb = new StringBuilder(to - myNameOffsets[slot]);
+    for (int pos = myNameOffsets[slot]; pos < to; ) {
+      final int b = bytes[pos++] & 0xFF;
+      if (b < 0x80) {
+        sb.append((char) b);
+      } else if (b < 0xE0) {
+        sb.append((char) (((b & 0x1F) << 6) | (bytes[pos++] & 0x3F)));
+      } else {
+        sb.append((char) (((b & 0x0F) << 12) | ((bytes[pos++] & 0x3F) << 6) | (bytes[pos++] & 0x3F)));
+      }
+    }
+    return sb.toString();
+  }
+
+  private static int utfLength(@NotNull final String s) {
+    int length = 0;
+    for (int i = 0; i < s.length(); i++) {
+      final char c = s.charAt(i);
+      length += c > 0 && c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+    }
+    return length;
+  }
+
+  private static void writeUtf(@NotNull final String s, @NotNull final byte[] bytes, int pos) {
+    for (int i = 0; i < s.length(); i++) {
+      final char c = s.charAt(i);
+      if (c > 0 && c < 0x80) {
+        bytes[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        bytes[pos++] = (byte) (0xC0 | (c >> 6));
+        bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+      } else {
+        bytes[pos++] = (byte) (0xE0 | (c >> 12));
+        bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "FrozenIndex{" +
+            "size=" + myEntries.length() + ", " +
+            "packages=" + myPackageNames.length + ", " +
+            "nameBytes=" + myNameBytes.length +
+            '}';
+  }
+
+  /**
+   * Minimal perfect hash of a set of keys, a key is hashed with the separator
+   * replaced by '/', so a class name is looked up without building a resource name
+   */
+  private static class Table {
+    private static final int BUCKET_SIZE = 4;
+    private static final int MAX_DISPLACEMENT = 1 << 20;
+    private static final int MAX_SEEDS = 8;
+
+    private final int mySeed;
+    /**
+     * Displacement of every bucket, a negative value {@code -(slot + 1)} is the slot
+     * of a bucket with one key
+     */
+    private final int[] myDisplacements;
+    private final int mySize;
+
+    private Table(final int seed, @NotNull final int[] displacements, final int size) {
+      mySeed = seed;
+      myDisplacements = displacements;
+      mySize = size;
+    }
+
+    /**
+     * @return slot of the key or some slot if it is not a key of the table
+     */
+    private int slot(@NotNull final String name, final int start, final int end, final char separator) {
+      return slot(hash(mySeed, name, start, end, separator));
+    }
+
+    private int slot(final long hash) {
+      final int a = (int) (hash >>> 32);
+      final int d = myDisplacements[(a >>> 1) % myDisplacements.length];
+      if (d < 0) return -d - 1;
+      return slot(hash, d, mySize);
+    }
+
+    private static int slot(final long hash, final int displacement, final int size) {
+      final int a = (int) (hash >>> 32);
+      final int b = (int) hash;
+      return (mix(b + displacement * (a | 1)) >>> 1) % size;
+    }
+
+    @Nullable
+    private static Table build(@NotNull final List<String> keys) {
+      if (keys.isEmpty()) return new Table(0, new int[1], 0);
+
+      for (int seed = 0; seed < MAX_SEEDS; seed++) {
+        final Table table = build(keys, seed);
+        if (table != null) return table;
+      }
+      return null;
+    }
+
+    @Nullable
+    private static Table build(@NotNull final List<String> keys, final int seed) {
+      final int size = keys.size();
+      final int buckets = (size + BUCKET_SIZE - 1) / BUCKET_SIZE;
+
+      final long[] hashes = new long[size];
+      final int[] bucketSizes = new int[buckets];
+      int maxBucket = 0;
+      for (int i = 0; i < size; i++) {
+        final String key = keys.get(i);
+        hashes[i] = hash(seed, key, 0, key.length(), '/');
+        final int bucket = ((int) (hashes[i] >>> 32) >>> 1) % buckets;
+        maxBucket = Math.max(maxBucket, ++bucketSizes[bucket]);
+      }
+
+      //keys grouped by buckets
+      final int[] starts = new int[buckets + 1];
+      for (int b = 0; b < buckets; b++) starts[b + 1] = starts[b] + bucketSizes[b];
+      final int[] fill = starts.clone();
+      final int[] members = new int[size];
+      for (int i = 0; i < size; i++) {
+        members[fill[((int) (hashes[i] >>> 32) >>> 1) % buckets]++] = i;
+      }
+
+      //larger buckets are placed first, while most of the slots are free
+      final int[] sizeStarts = new int[maxBucket + 2];
+      for (int b = 0; b < buckets; b++) sizeStarts[maxBucket - bucketSizes[b] + 1]++;
+      for (int s = 0; s <= maxBucket; s++) sizeStarts[s + 1] += sizeStarts[s];
+      final int[] order = new int[buckets];
+      for (int b = 0; b < buckets; b++) order[sizeStarts[maxBucket - bucketSizes[b]]++] = b;
+
+      final int[] displacements = new int[buckets];
+      final boolean[] used = new boolean[size];
+      final int[] slots = new int[maxBucket];
+      int free = 0;
+      for (int bucket : order) {
+        final int count = bucketSizes[bucket];
+        if (count == 0) break;
+
+        if (count == 1) {
+          while (used[free]) free++;
+          used[free] = true;
+          displacements[bucket] = -free - 1;
+          continue;
+        }
+
+        int d = 0;
+        for (; d < MAX_DISPLACEMENT; d++) {
+          if (fits(hashes, members, starts[bucket], count, d, used, slots)) break;
+        }
+        if (d == MAX_DISPLACEMENT) return null;
+
+        for (int k = 0; k < count; k++) used[slots[k]] = true;
+        displacements[bucket] = d;
+      }
+      return new Table(seed, displacements, size);
+    }
+
+    private static boolean fits(@NotNull final long[] hashes,
+                                @NotNull final int[] members,
+                                final int from,
+                                final int count,
+                                final int displacement,
+                                @NotNull final boolean[] used,
+                                @NotNull final int[] slots) {
+      for (int k = 0; k < count; k++) {
+        final int slot = slot(hashes[members[from + k]], displacement, used.length);
+        if (used[slot]) return false;
+        for (int j = 0; j < k; j++) {
+          if (slots[j] == slot) return false;
+        }
+        slots[k] = slot;
+      }
+      return true;
+    }
+
+    private static long hash(final int seed,
+                             @NotNull final String name,
+                             final int start,
+                             final int end,
+                             final char separator) {
+      int a = seed ^ 0x811C9DC5;
+      int b = seed * 0x9E3779B9 + 0x7F4A7C15;
+      for (int i = start; i < end; i++) {
+        char c = name.charAt(i);
+        if (c == separator) c = '/';
+        a = (a ^ c) * 0x01000193;
+        b = (b + c) * 0x5BD1E995;
+        b ^= b >>> 15;
+      }
+      return ((long) mix(a) << 32) | (mix(b) & 0xFFFFFFFFL);
+    }
+
+    private static int mix(int h) {
+      //the finalizer of MurmurHash3
+      h ^= h >>> 16;
+      h *= 0x85EBCA6B;
+      h ^= h >>> 13;
+      h *= 0xC2B2AE35;
+      h ^= h >>> 16;
+      return h;
+    }
+  }
+}
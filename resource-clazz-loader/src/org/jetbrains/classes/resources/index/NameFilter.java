@@ -0,0 +1,108 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.index;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Bloom filter over resource names, it rejects most of the missing names
+ * with a few memory reads. A class name is checked as the name of its
+ * class file without building the string.
+ *
+ * The filter is not synchronized, same as {@link PrefixIndex}
+ */
+public class NameFilter {
+  private static final int BITS_PER_NAME = 16;
+  private static final int HASHES = 4;
+  private static final String CLASS_EXTENSION = ".class";
+
+  private final long[] myBits;
+  private final int myMask;
+  private final int myCapacity;
+  private int mySize = 0;
+
+  /**
+   * @param capacity number of names for the designed false positive rate, about 0.25%
+   */
+  public NameFilter(final int capacity) {
+    int bits = 64;
+    while (bits < capacity * BITS_PER_NAME && bits < (1 << 30)) bits *= 2;
+
+    myBits = new long[bits / 64];
+    myMask = bits - 1;
+    myCapacity = capacity;
+  }
+
+  /**
+   * @param hash {@link String#hashCode()} of the name
+   * @return false if the filter is over its capacity, the name is added anyway
+   */
+  public boolean add(final int hash) {
+    final int a = mix(hash);
+    final int b = mix(a ^ 0x9E3779B9) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      final int bit = (a + i * b) & myMask;
+      myBits[bit >>> 6] |= 1L << bit;
+    }
+    return ++mySize <= myCapacity;
+  }
+
+  public boolean mightContain(@NotNull final String name) {
+    return test(name.hashCode());
+  }
+
+  /**
+   * @param className binary class name, e.g. {@code java.lang.String}
+   * @return false if there is no class file of the class for sure
+   */
+  public boolean mightContainClass(@NotNull final String className) {
+    //same as "a/b/C.class".hashCode() for "a.b.C"
+    int h = 0;
+    for (int i = 0; i < className.length(); i++) {
+      final char c = className.charAt(i);
+      h = 31 * h + (c == '.' ? '/' : c);
+    }
+    for (int i = 0; i < CLASS_EXTENSION.length(); i++) {
+      h = 31 * h + CLASS_EXTENSION.charAt(i);
+    }
+    return test(h);
+  }
+
+  private boolean test(final int hash) {
+    final int a = mix(hash);
+    final int b = mix(a ^ 0x9E3779B9) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      final int bit = (a + i * b) & myMask;
+      if ((myBits[bit >>> 6] & (1L << bit)) == 0) return false;
+    }
+    return true;
+  }
+
+  public int getCapacity() {
+    return myCapacity;
+  }
+
+  private static int mix(int h) {
+    //murmur3 finalizer
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
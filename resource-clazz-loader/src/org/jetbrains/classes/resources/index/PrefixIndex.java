@@ -0,0 +1,280 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.index;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.classes.resources.entry.ResourceEntry;
+
+import java.io.IOException;
+
+/**
+ * Maps resource names to entries. Names are split by '/' and every
+ * package or directory segment is stored once in a tree node,
+ * so entries of the same package do not repeat the package prefix.
+ *
+ * A lookup walks the tree segment by segment without allocations,
+ * that takes time proportional to the name length. Most of missing
+ * names are rejected by a {@link NameFilter} before the walk.
+ *
+ * The index is not synchronized, it is safe to read it from many threads
+ * once all entries were added. Replacing an entry of an existing name and
+ * {@link #trim()} are safe with concurrent reads. Use {@link FrozenIndex} for
+ * an index that is not changed anymore
+ */
+public class PrefixIndex implements ResourceIndex {
+  private static final int MIN_FILTER_CAPACITY = 1024;
+
+  private final Node myRoot = new Node("");
+  private int mySize = 0;
+  @NotNull
+  private NameFilter myFilter = new NameFilter(MIN_FILTER_CAPACITY);
+
+  @Nullable
+  @Override
+  public ResourceEntry get(@NotNull final String name) {
+    if (!myFilter.mightContain(name)) return null;
+
+    Node node = myRoot;
+    int start = 0;
+    while (true) {
+      final int end = segmentEnd(name, start);
+      node = node.find(name, start, end);
+      if (node == null) return null;
+      if (end == name.length()) return node.myEntry;
+      start = end + 1;
+    }
+  }
+
+  @Nullable
+  @Override
+  public ResourceEntry put(@NotNull final String name, @NotNull final ResourceEntry entry) {
+    Node node = myRoot;
+    int start = 0;
+    while (true) {
+      final int end = segmentEnd(name, start);
+      if (end == name.length()) node.myHasEntries = true;
+      node = node.findOrCreate(name, start, end);
+      if (end == name.length()) break;
+      start = end + 1;
+    }
+
+    final ResourceEntry prev = node.myEntry;
+    node.myEntry = entry;
+    if (prev == null) {
+      mySize++;
+      if (!myFilter.add(name.hashCode())) rebuildFilter();
+    }
+    return prev;
+  }
+
+  @Override
+  public boolean hasPackageOf(@NotNull final String name, final char separator) {
+    final int last = name.lastIndexOf(separator);
+    if (last < 0) return myRoot.myHasEntries;
+
+    Node node = myRoot;
+    int start = 0;
+    while (true) {
+      final int end = name.indexOf(separator, start);
+      node = node.find(name, start, end);
+      if (node == null) return false;
+      if (end == last) return node.myHasEntries;
+      start = end + 1;
+    }
+  }
+
+  @Override
+  public boolean mightContainClass(@NotNull final String className) {
+    return myFilter.mightContainClass(className);
+  }
+
+  private void rebuildFilter() {
+    final NameFilter filter = new NameFilter(Math.max(MIN_FILTER_CAPACITY, mySize * 2));
+    addNames(filter, myRoot, 0, true);
+    myFilter = filter;
+  }
+
+  private static void addNames(@NotNull final NameFilter filter,
+                               @NotNull final Node node,
+                               final int prefixHash,
+                               final boolean root) {
+    final Node[] children = node.myChildren;
+    if (children == null) return;
+
+    for (Node child : children) {
+      if (child == null) continue;
+
+      //String#hashCode() of the name is computed from the hash of the prefix
+      int h = root ? 0 : 31 * prefixHash + '/';
+      final String segment = child.mySegment;
+      for (int i = 0; i < segment.length(); i++) {
+        h = 31 * h + segment.charAt(i);
+      }
+
+      if (child.myEntry != null) filter.add(h);
+      addNames(filter, child, h, false);
+    }
+  }
+
+  @Override
+  public int size() {
+    return mySize;
+  }
+
+  /**
+   * Shrinks children tables of all nodes to load factor up to 7/8 (3/4 while adding).
+   * That saves memory for the price of longer probes for missing names.
+   * The index is still open for additions
+   */
+  @Override
+  public void trim() {
+    trim(myRoot);
+  }
+
+  private static void trim(@NotNull final Node node) {
+    final Node[] children = node.myChildren;
+    if (children == null) return;
+
+    int length = 2;
+    while (node.myChildrenCount * 8 > length * 7) length *= 2;
+
+    if (length < children.length) {
+      final Node[] table = new Node[length];
+      for (Node child : children) {
+        if (child != null) Node.insert(table, child);
+      }
+      node.myChildren = table;
+    }
+
+    for (Node child : children) {
+      if (child != null) trim(child);
+    }
+  }
+
+  @Override
+  public void visit(@NotNull final EntryVisitor visitor) throws IOException {
+    visit(myRoot, new StringBuilder(), visitor);
+  }
+
+  private static void visit(@NotNull final Node node,
+                            @NotNull final StringBuilder prefix,
+                            @NotNull final EntryVisitor visitor) throws IOException {
+    final Node[] children = node.myChildren;
+    if (children == null) return;
+
+    final int length = prefix.length();
+    for (Node child : children) {
+      if (child == null) continue;
+
+      prefix.setLength(length);
+      prefix.append(child.mySegment);
+      if (child.myEntry != null) visitor.visit(prefix.toString(), child.myEntry);
+
+      if (child.myChildren != null) {
+        prefix.append('/');
+        visit(child, prefix, visitor);
+      }
+    }
+    prefix.setLength(length);
+  }
+
+  private static int segmentEnd(@NotNull final String name, final int start) {
+    final int end = name.indexOf('/', start);
+    return end < 0 ? name.length() : end;
+  }
+
+  private static int hash(@NotNull final String name, final int start, final int end) {
+    //same as String#hashCode() of the segment, which is cached in the segment string
+    int h = 0;
+    for (int i = start; i < end; i++) {
+      h = 31 * h + name.charAt(i);
+    }
+    return h;
+  }
+
+  private static int mix(final int h) {
+    return h ^ (h >>> 16);
+  }
+
+  private static class Node {
+    private final String mySegment;
+    @Nullable
+    private volatile ResourceEntry myEntry;
+    /**
+     * Open addressing table with linear probing, the size is a power of 2.
+     * A new table is published only when it is filled
+     */
+    @Nullable
+    private volatile Node[] myChildren;
+    private int myChildrenCount;
+    /**
+     * True if some entry is a direct child of the node, i.e. the node is a package
+     */
+    private boolean myHasEntries;
+
+    private Node(@NotNull final String segment) {
+      mySegment = segment;
+    }
+
+    @Nullable
+    private Node find(@NotNull final String name, final int start, final int end) {
+      final Node[] children = myChildren;
+      if (children == null) return null;
+
+      final int len = end - start;
+      final int mask = children.length - 1;
+      for (int i = mix(hash(name, start, end)) & mask; ; i = (i + 1) & mask) {
+        final Node child = children[i];
+        if (child == null) return null;
+
+        final String segment = child.mySegment;
+        if (segment.length() == len && name.regionMatches(start, segment, 0, len)) return child;
+      }
+    }
+
+    @NotNull
+    private Node findOrCreate(@NotNull final String name, final int start, final int end) {
+      final Node existing = find(name, start, end);
+      if (existing != null) return existing;
+
+      Node[] children = myChildren;
+      if (children == null) {
+        children = myChildren = new Node[2];
+      } else if ((myChildrenCount + 1) * 4 > children.length * 3) {
+        final Node[] old = children;
+        children = new Node[old.length * 2];
+        for (Node child : old) {
+          if (child != null) insert(children, child);
+        }
+        myChildren = children;
+      }
+
+      final Node child = new Node(name.substring(start, end));
+      insert(children, child);
+      myChildrenCount++;
+      return child;
+    }
+
+    private static void insert(@NotNull final Node[] table, @NotNull final Node child) {
+      final int mask = table.length - 1;
+      int i = mix(child.mySegment.hashCode()) & mask;
+      while (table[i] != null) i = (i + 1) & mask;
+      table[i] = child;
+    }
+  }
+}
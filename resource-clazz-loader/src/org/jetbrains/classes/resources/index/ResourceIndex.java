@@ -0,0 +1,63 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.classes.resources.index;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.classes.resources.entry.ResourceEntry;
+
+import java.io.IOException;
+
+/**
+ * Maps resource names to entries of a classpath
+ * @see PrefixIndex
+ * @see FrozenIndex
+ */
+public interface ResourceIndex {
+  @Nullable
+  ResourceEntry get(@NotNull String name);
+
+  /**
+   * @return previous entry of the name
+   */
+  @Nullable
+  ResourceEntry put(@NotNull String name, @NotNull ResourceEntry entry);
+
+  /**
+   * Checks if there are entries in the package (directory) of the name,
+   * e.g. {@code a/b} for {@code a/b/c.txt} or {@code a.b} for {@code a.b.C}
+   *
+   * @param separator separator of the name segments, '/' for resources and '.' for classes
+   */
+  boolean hasPackageOf(@NotNull String name, char separator);
+
+  /**
+   * @param className binary class name, e.g. {@code java.lang.String}
+   * @return false if there is no entry for the class file for sure
+   */
+  boolean mightContainClass(@NotNull String className);
+
+  int size();
+
+  /**
+   * Releases memory that was reserved for additions
+   */
+  void trim();
+
+  void visit(@NotNull EntryVisitor visitor) throws IOException;
+}
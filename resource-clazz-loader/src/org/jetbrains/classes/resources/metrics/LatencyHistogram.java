@@ -0,0 +1,96 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations with power of two buckets,
+ * percentiles are precise up to the factor of two
+ */
+public class LatencyHistogram {
+  private static final int BUCKETS = 64;
+
+  private final AtomicLongArray myBuckets = new AtomicLongArray(BUCKETS);
+  private final AtomicLongArray myTotals = new AtomicLongArray(2);
+
+  public void add(final long nanos) {
+    final long value = Math.max(0, nanos);
+    //bucket i holds values from 2^(i-1) to 2^i - 1
+    myBuckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value)));
+    myTotals.incrementAndGet(0);
+    myTotals.addAndGet(1, value);
+  }
+
+  public long getCount() {
+    return myTotals.get(0);
+  }
+
+  public long getTotalNanos() {
+    return myTotals.get(1);
+  }
+
+  public long getTotalMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(getTotalNanos());
+  }
+
+  /**
+   * @param percentile from 0 to 100
+   * @return upper bound of the bucket with the percentile or 0 if there are no values
+   */
+  public long getPercentileNanos(final double percentile) {
+    final long[] buckets = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = myBuckets.get(i);
+      count += buckets[i];
+    }
+    if (count == 0) return 0;
+
+    final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets[i];
+      if (seen >= rank) return upperBound(i);
+    }
+    return upperBound(BUCKETS - 1);
+  }
+
+  private static long upperBound(final int bucket) {
+    if (bucket == 0) return 0;
+    if (bucket >= 63) return Long.MAX_VALUE;
+    return (1L << bucket) - 1;
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) myBuckets.set(i, 0);
+    myTotals.set(0, 0);
+    myTotals.set(1, 0);
+  }
+
+  @NotNull
+  @Override
+  public String toString() {
+    return "count=" + getCount() +
+            ", total=" + getTotalMillis() + "ms" +
+            ", p50=" + getPercentileNanos(50) / 1000 + "us" +
+            ", p99=" + getPercentileNanos(99) / 1000 + "us";
+  }
+}
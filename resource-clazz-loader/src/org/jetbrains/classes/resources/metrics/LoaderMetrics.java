@@ -0,0 +1,350 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.classes.resources.ClassLoaderListener;
+import org.jetbrains.classes.resources.Delegation;
+import org.jetbrains.classes.resources.ResourceClassLoader;
+import org.jetbrains.classes.resources.ResourceClasspath;
+import org.jetbrains.classes.resources.ResourceHolder;
+import org.jetbrains.classes.resources.entry.ContentStore;
+import org.jetbrains.classes.resources.entry.Entries;
+import org.jetbrains.classes.resources.entry.ResourceEntry;
+import org.jetbrains.classes.resources.entry.ScanEntry;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and latency histograms of a {@link ResourceClassLoader}.
+ * Use {@link #register(ResourceClassLoader)} to attach the metrics to a loader
+ * and to publish them as a JMX MBean, it is unregistered when the loader is closed
+ */
+public class LoaderMetrics implements ClassLoaderListener, LoaderMetricsMXBean {
+  public static final String DOMAIN = "org.jetbrains.classes.resources";
+
+  private final LatencyHistogram myDefineTime = new LatencyHistogram();
+  private final LatencyHistogram myEntryReadTime = new LatencyHistogram();
+  private final LatencyHistogram myLockWaitTime = new LatencyHistogram();
+  private final LatencyHistogram myScanTime = new LatencyHistogram();
+  private final AtomicLong myScannedEntries = new AtomicLong();
+  private final AtomicLong myDeduplicatedEntries = new AtomicLong();
+  private final AtomicLong myDeduplicatedBytes = new AtomicLong();
+  private final AtomicLong mySelfHits = new AtomicLong();
+  private final AtomicLong mySelfMisses = new AtomicLong();
+  private final AtomicLong myParentHits = new AtomicLong();
+  private final AtomicLong myParentMisses = new AtomicLong();
+  private final AtomicLong myScanRescans = new AtomicLong();
+  private final ConcurrentMap<String, AtomicLong> myDecodedBytes = new ConcurrentHashMap<String, AtomicLong>();
+  @Nullable
+  private volatile ObjectName myName = null;
+  /**
+   * Scan and deduplication counters are taken from the classpath of a registered loader,
+   * its resources are usually indexed before the metrics are attached
+   */
+  @Nullable
+  private volatile ResourceClasspath myClasspath = null;
+  /**
+   * Counters of the classpath as of the last {@link #reset()}
+   */
+  private volatile long[] myClasspathBase = new long[5];
+
+  /**
+   * Adds new metrics to the listeners of the loader and registers them in the platform MBean server
+   * under {@code org.jetbrains.classes.resources:type=ResourceClassLoader,id=...}.
+   * The metrics still work if the registration fails
+   */
+  @NotNull
+  public static LoaderMetrics register(@NotNull final ResourceClassLoader loader) {
+    final LoaderMetrics metrics = new LoaderMetrics();
+    metrics.myClasspath = loader.getClasspath();
+    try {
+      final ObjectName name = new ObjectName(DOMAIN + ":type=ResourceClassLoader,id=" + Integer.toHexString(System.identityHashCode(loader)));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+      metrics.myName = name;
+    } catch (Exception e) {
+      //NOP
+    }
+    loader.addListener(metrics);
+    return metrics;
+  }
+
+  /**
+   * @return name of the registered MBean or null
+   */
+  @Nullable
+  public ObjectName getObjectName() {
+    return myName;
+  }
+
+  @Override
+  public void resourceScanned(@NotNull final ResourceHolder resource, final int entries, final long bytes, final long nanos) {
+    if (myClasspath != null) return;
+    myScanTime.add(nanos);
+    myScannedEntries.addAndGet(entries);
+  }
+
+  @Override
+  public void entryDeduplicated(@NotNull final String name, final int size) {
+    if (myClasspath != null) return;
+    myDeduplicatedEntries.incrementAndGet();
+    myDeduplicatedBytes.addAndGet(size);
+  }
+
+  @Override
+  public void classLookup(@NotNull final String name, @NotNull final Delegation.Owner side, final boolean found) {
+    if (side == Delegation.Owner.PARENT) {
+      (found ? myParentHits : myParentMisses).incrementAndGet();
+    } else {
+      (found ? mySelfHits : mySelfMisses).incrementAndGet();
+    }
+  }
+
+  @Override
+  public void classDefined(@NotNull final String name, final int size, final long nanos) {
+    myDefineTime.add(nanos);
+  }
+
+  @Override
+  public void classDefineFailed(@NotNull final String name) {
+  }
+
+  @Override
+  public void entryRead(@NotNull final String name,
+                        @NotNull final ResourceEntry entry,
+                        @NotNull final Read read,
+                        final int size,
+                        final long nanos) {
+    myEntryReadTime.add(nanos);
+
+    final ResourceEntry data = Entries.unwrap(entry);
+    if (data instanceof ScanEntry) myScanRescans.incrementAndGet();
+    if (size <= 0) return;
+
+    final String type = data.getClass().getSimpleName();
+    AtomicLong bytes = myDecodedBytes.get(type);
+    if (bytes == null) {
+      final AtomicLong newBytes = new AtomicLong();
+      bytes = myDecodedBytes.putIfAbsent(type, newBytes);
+      if (bytes == null) bytes = newBytes;
+    }
+    bytes.addAndGet(size);
+  }
+
+  @Override
+  public void lockWaited(@NotNull final String name, final long nanos) {
+    myLockWaitTime.add(nanos);
+  }
+
+  @Override
+  public void closed() {
+    final ObjectName name = myName;
+    if (name == null) return;
+    myName = null;
+
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(name)) server.unregisterMBean(name);
+    } catch (Exception e) {
+      //NOP
+    }
+  }
+
+  @Override
+  public long getResourcesScanned() {
+    final ResourceClasspath classpath = myClasspath;
+    if (classpath == null) return myScanTime.getCount();
+    return classpath.getScannedResources() - myClasspathBase[0];
+  }
+
+  @Override
+  public long getScannedEntries() {
+    final ResourceClasspath classpath = myClasspath;
+    if (classpath == null) return myScannedEntries.get();
+    return classpath.getScannedEntries() - myClasspathBase[1];
+  }
+
+  @Override
+  public long getScanTimeNanos() {
+    final ResourceClasspath classpath = myClasspath;
+    if (classpath == null) return myScanTime.getTotalNanos();
+    return classpath.getScanTimeNanos() - myClasspathBase[2];
+  }
+
+  @Override
+  public long getDeduplicatedEntries() {
+    final ResourceClasspath classpath = myClasspath;
+    if (classpath == null) return myDeduplicatedEntries.get();
+    return classpath.getDeduplicatedEntries() - myClasspathBase[3];
+  }
+
+  @Override
+  public long getDeduplicatedBytes() {
+    final ResourceClasspath classpath = myClasspath;
+    if (classpath == null) return myDeduplicatedBytes.get();
+    return classpath.getDeduplicatedBytes() - myClasspathBase[4];
+  }
+
+  @Override
+  public long getStoreSharedEntries() {
+    final ContentStore store = getContentStore();
+    return store != null ? store.getSharedEntries() : 0;
+  }
+
+  @Override
+  public long getStoreSharedBytes() {
+    final ContentStore store = getContentStore();
+    return store != null ? store.getSharedBytes() : 0;
+  }
+
+  @Nullable
+  private ContentStore getContentStore() {
+    final ResourceClasspath classpath = myClasspath;
+    return classpath != null ? classpath.getContentStore() : null;
+  }
+
+  @Override
+  public long getClassesDefined() {
+    return myDefineTime.getCount();
+  }
+
+  @Override
+  public long getDefineTimeNanos() {
+    return myDefineTime.getTotalNanos();
+  }
+
+  @Override
+  public long getDefineTimeP99Nanos() {
+    return myDefineTime.getPercentileNanos(99);
+  }
+
+  @Override
+  public long getSelfHits() {
+    return mySelfHits.get();
+  }
+
+  @Override
+  public long getSelfMisses() {
+    return mySelfMisses.get();
+  }
+
+  @Override
+  public long getParentHits() {
+    return myParentHits.get();
+  }
+
+  @Override
+  public long getParentMisses() {
+    return myParentMisses.get();
+  }
+
+  @Override
+  public long getEntryReads() {
+    return myEntryReadTime.getCount();
+  }
+
+  @Override
+  public long getEntryReadTimeNanos() {
+    return myEntryReadTime.getTotalNanos();
+  }
+
+  @Override
+  public long getEntryReadTimeP99Nanos() {
+    return myEntryReadTime.getPercentileNanos(99);
+  }
+
+  @NotNull
+  @Override
+  public Map<String, Long> getDecodedBytes() {
+    final Map<String, Long> result = new TreeMap<String, Long>();
+    for (Map.Entry<String, AtomicLong> e : myDecodedBytes.entrySet()) {
+      result.put(e.getKey(), e.getValue().get());
+    }
+    return result;
+  }
+
+  @Override
+  public long getScanRescans() {
+    return myScanRescans.get();
+  }
+
+  @Override
+  public long getLockWaits() {
+    return myLockWaitTime.getCount();
+  }
+
+  @Override
+  public long getLockWaitTimeNanos() {
+    return myLockWaitTime.getTotalNanos();
+  }
+
+  @Override
+  public long getLockWaitTimeP99Nanos() {
+    return myLockWaitTime.getPercentileNanos(99);
+  }
+
+  @Override
+  public void reset() {
+    myDefineTime.reset();
+    myEntryReadTime.reset();
+    myLockWaitTime.reset();
+    myScanTime.reset();
+    myScannedEntries.set(0);
+    myDeduplicatedEntries.set(0);
+    myDeduplicatedBytes.set(0);
+    mySelfHits.set(0);
+    mySelfMisses.set(0);
+    myParentHits.set(0);
+    myParentMisses.set(0);
+    myScanRescans.set(0);
+    myDecodedBytes.clear();
+
+    final ResourceClasspath classpath = myClasspath;
+    if (classpath != null) {
+      myClasspathBase = new long[]{
+              classpath.getScannedResources(),
+              classpath.getScannedEntries(),
+              classpath.getScanTimeNanos(),
+              classpath.getDeduplicatedEntries(),
+              classpath.getDeduplicatedBytes()};
+    }
+  }
+
+  @NotNull
+  @Override
+  public String toString() {
+    return "LoaderMetrics{" +
+            "scan=" + getResourcesScanned() + "/" + getScannedEntries() + ", " +
+            "dedup=" + getDeduplicatedEntries() + "/" + getDeduplicatedBytes() + ", " +
+            "define={" + myDefineTime + "}, " +
+            "self=" + getSelfHits() + "/" + getSelfMisses() + ", " +
+            "parent=" + getParentHits() + "/" + getParentMisses() + ", " +
+            "reads={" + myEntryReadTime + "}, " +
+            "decoded=" + getDecodedBytes() + ", " +
+            "rescans=" + getScanRescans() + ", " +
+            "lockWait={" + myLockWaitTime + "}" +
+            '}';
+  }
+}
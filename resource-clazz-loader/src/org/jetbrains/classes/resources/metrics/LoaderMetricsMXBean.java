@@ -0,0 +1,85 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link LoaderMetrics}, times are in nanoseconds
+ */
+public interface LoaderMetricsMXBean {
+  long getResourcesScanned();
+
+  long getScannedEntries();
+
+  long getScanTimeNanos();
+
+  /**
+   * @return number of indexed entries that share the payload of an equal entry
+   */
+  long getDeduplicatedEntries();
+
+  /**
+   * @return bytes of the indexed entries that were not stored again
+   */
+  long getDeduplicatedBytes();
+
+  /**
+   * @return entries shared by the content store of the classpath, over all classpaths that use the store
+   */
+  long getStoreSharedEntries();
+
+  long getStoreSharedBytes();
+
+  long getClassesDefined();
+
+  long getDefineTimeNanos();
+
+  long getDefineTimeP99Nanos();
+
+  long getSelfHits();
+
+  long getSelfMisses();
+
+  long getParentHits();
+
+  long getParentMisses();
+
+  long getEntryReads();
+
+  long getEntryReadTimeNanos();
+
+  long getEntryReadTimeP99Nanos();
+
+  /**
+   * @return decoded bytes per entry type, inflated bytes for compressed entries
+   */
+  Map<String, Long> getDecodedBytes();
+
+  /**
+   * @return number of reads that scanned the source resource again
+   */
+  long getScanRescans();
+
+  long getLockWaits();
+
+  long getLockWaitTimeNanos();
+
+  long getLockWaitTimeP99Nanos();
+
+  void reset();
+}
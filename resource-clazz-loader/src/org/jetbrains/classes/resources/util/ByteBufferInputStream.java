@@ -0,0 +1,62 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads remaining bytes of a buffer. The buffer is duplicated,
+ * so the stream does not change position of the original buffer
+ */
+public class ByteBufferInputStream extends InputStream {
+  private final ByteBuffer myBuffer;
+
+  public ByteBufferInputStream(@NotNull final ByteBuffer buffer) {
+    myBuffer = buffer.duplicate();
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!myBuffer.hasRemaining()) return -1;
+    return myBuffer.get() & 0xFF;
+  }
+
+  @Override
+  public int read(@NotNull final byte[] b, final int off, final int len) throws IOException {
+    if (len == 0) return 0;
+    final int sz = Math.min(len, myBuffer.remaining());
+    if (sz <= 0) return -1;
+    myBuffer.get(b, off, sz);
+    return sz;
+  }
+
+  @Override
+  public long skip(final long n) {
+    final int sz = (int) Math.max(0, Math.min(n, myBuffer.remaining()));
+    myBuffer.position(myBuffer.position() + sz);
+    return sz;
+  }
+
+  @Override
+  public int available() {
+    return myBuffer.remaining();
+  }
+}
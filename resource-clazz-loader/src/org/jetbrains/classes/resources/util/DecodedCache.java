@@ -0,0 +1,78 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used decoded entries, bounded by the total size of the entries
+ */
+public class DecodedCache {
+  public static final int DEFAULT_SIZE = 8 * 1024 * 1024;
+
+  private final long myMaxBytes;
+  private final LinkedHashMap<Object, byte[]> myEntries = new LinkedHashMap<Object, byte[]>(64, 0.75f, true);
+  private long myBytes = 0;
+
+  public DecodedCache(final long maxBytes) {
+    myMaxBytes = maxBytes;
+  }
+
+  /**
+   * @return true if an entry of that size could be cached
+   */
+  public boolean accepts(final int size) {
+    return size <= myMaxBytes / 4;
+  }
+
+  @Nullable
+  public synchronized byte[] get(@NotNull final Object key) {
+    return myEntries.get(key);
+  }
+
+  public synchronized void put(@NotNull final Object key, @NotNull final byte[] data) {
+    if (!accepts(data.length)) return;
+
+    final byte[] prev = myEntries.put(key, data);
+    if (prev != null) myBytes -= prev.length;
+    myBytes += data.length;
+
+    final Iterator<Map.Entry<Object, byte[]>> it = myEntries.entrySet().iterator();
+    while (myBytes > myMaxBytes && it.hasNext()) {
+      myBytes -= it.next().getValue().length;
+      it.remove();
+    }
+  }
+
+  public synchronized void clear() {
+    myEntries.clear();
+    myBytes = 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "DecodedCache{" +
+            "entries=" + myEntries.size() + ", " +
+            "bytes=" + myBytes +
+            '}';
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.*;
+
+/**
+ * Decodes raw deflate and gzip data into exactly sized arrays.
+ * Native {@link Inflater}s are reused from a small pool, so the decode
+ * path allocates nothing but the result
+ */
+public class Inflaters {
+  private static final int POOL_SIZE = 16;
+  private static final int GZIP_MAGIC = 0x8b1f;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  //the inflater may need an extra dummy byte with nowrap
+  private static final byte[] DUMMY = new byte[1];
+
+  private static final Decoder[] ourPool = new Decoder[POOL_SIZE];
+  private static int ourPoolSize = 0;
+
+  /**
+   * Inflates raw deflate data into exactly {@code size} bytes of the given array
+   *
+   * @param raw raw deflate data, the buffer position is not changed
+   * @return CRC-32 of the inflated bytes
+   * @throws IOException on error or if the data size is not {@code size}
+   */
+  public static int inflate(@NotNull final ByteBuffer raw,
+                            @NotNull final byte[] result,
+                            final int offset,
+                            final int size) throws IOException {
+    final Decoder decoder = acquire();
+    try {
+      return decoder.inflate(raw.duplicate(), result, offset, size);
+    } finally {
+      release(decoder);
+    }
+  }
+
+  /**
+   * Decodes gzip data into exactly {@code size} bytes of the given array,
+   * the CRC-32 and the size from the gzip trailer are checked
+   *
+   * @param gzip gzip data, the buffer position is not changed
+   * @throws IOException on error or if the data size is not {@code size}
+   */
+  public static void gunzip(@NotNull final ByteBuffer gzip,
+                            @NotNull final byte[] result,
+                            final int offset,
+                            final int size) throws IOException {
+    final ByteBuffer in = gzip.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    final Decoder decoder = acquire();
+    try {
+      skipHeader(in);
+      final int crc = decoder.inflate(in, result, offset, size);
+      if (in.remaining() < 8) throw new EOFException("Unexpected end of GZIP trailer");
+      if (in.getInt() != crc) throw new ZipException("Corrupt GZIP trailer");
+      if (in.getInt() != size) throw new ZipException("Entry size differs from " + size);
+    } finally {
+      release(decoder);
+    }
+  }
+
+  /**
+   * @return uncompressed size from the gzip trailer, valid for data below 2GB, or -1 if the data is too short
+   */
+  public static int gzipSize(@NotNull final ByteBuffer gzip) {
+    if (gzip.remaining() < 18) return -1;
+    return gzip.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(gzip.limit() - 4);
+  }
+
+  /**
+   * @param raw raw deflate data
+   * @return stream of inflated bytes, the inflater is returned to the pool on close
+   */
+  @NotNull
+  public static InputStream openStream(@NotNull final ByteBuffer raw) {
+    final Decoder decoder = acquire();
+    final InputStream data = new SequenceInputStream(new ByteBufferInputStream(raw), new ByteArrayInputStream(DUMMY));
+    return new InflaterInputStream(data, decoder.myInflater, 8192) {
+      private boolean myClosed = false;
+
+      @Override
+      public void close() throws IOException {
+        if (myClosed) return;
+        myClosed = true;
+        super.close();
+        release(decoder);
+      }
+    };
+  }
+
+  private static void skipHeader(@NotNull final ByteBuffer in) throws IOException {
+    try {
+      if ((in.getShort() & 0xFFFF) != GZIP_MAGIC || in.get() != Deflater.DEFLATED) throw new ZipException("Not in GZIP format");
+      final int flags = in.get() & 0xFF;
+      //mtime, extra flags and OS
+      in.position(in.position() + 6);
+
+      if ((flags & FEXTRA) != 0) in.position(in.position() + (in.getShort() & 0xFFFF));
+      if ((flags & FNAME) != 0) while (in.get() != 0) ;
+      if ((flags & FCOMMENT) != 0) while (in.get() != 0) ;
+      if ((flags & FHCRC) != 0) in.position(in.position() + 2);
+    } catch (BufferUnderflowException e) {
+      throw new EOFException("Unexpected end of GZIP header");
+    } catch (IllegalArgumentException e) {
+      throw new EOFException("Unexpected end of GZIP header");
+    }
+  }
+
+  @NotNull
+  private static Decoder acquire() {
+    synchronized (ourPool) {
+      if (ourPoolSize > 0) {
+        final Decoder decoder = ourPool[--ourPoolSize];
+        ourPool[ourPoolSize] = null;
+        return decoder;
+      }
+    }
+    return new Decoder();
+  }
+
+  private static void release(@NotNull final Decoder decoder) {
+    decoder.myInflater.reset();
+    decoder.myCrc.reset();
+    synchronized (ourPool) {
+      if (ourPoolSize < POOL_SIZE) {
+        ourPool[ourPoolSize++] = decoder;
+        return;
+      }
+    }
+    decoder.myInflater.end();
+  }
+
+  private static final class Decoder {
+    private final Inflater myInflater = new Inflater(true);
+    private final CRC32 myCrc = new CRC32();
+    //input chunks of buffers without an array
+    private final byte[] myInput = new byte[8192];
+    private final byte[] myProbe = new byte[1];
+
+    /**
+     * Inflates the data and moves the buffer position right after the deflate data
+     */
+    private int inflate(@NotNull final ByteBuffer in,
+                        @NotNull final byte[] result,
+                        final int offset,
+                        final int size) throws IOException {
+      final Inflater inflater = myInflater;
+      int n = 0;
+      boolean dummy = false;
+      try {
+        while (!inflater.finished()) {
+          if (inflater.needsInput()) {
+            if (in.hasRemaining()) {
+              if (in.hasArray()) {
+                inflater.setInput(in.array(), in.arrayOffset() + in.position(), in.remaining());
+                in.position(in.limit());
+              } else {
+                final int len = Math.min(myInput.length, in.remaining());
+                in.get(myInput, 0, len);
+                inflater.setInput(myInput, 0, len);
+              }
+            } else {
+              if (dummy) throw new EOFException("Unexpected end of entry data");
+              inflater.setInput(DUMMY, 0, 1);
+              dummy = true;
+            }
+          } else if (inflater.needsDictionary()) {
+            throw new ZipException("Preset dictionary is not supported");
+          }
+
+          if (n < size) {
+            n += inflater.inflate(result, offset + n, size - n);
+          } else if (inflater.inflate(myProbe) > 0) {
+            throw new ZipException("Entry is larger than " + size);
+          }
+        }
+      } catch (DataFormatException e) {
+        throw new ZipException(e.getMessage());
+      }
+
+      if (n != size) throw new ZipException("Entry size " + n + " differs from " + size);
+      if (!dummy) in.position(in.position() - inflater.getRemaining());
+
+      myCrc.update(result, offset, size);
+      return (int) myCrc.getValue();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded set of names that are known to be missing.
+ * The set is cleared once it is full, so the size is approximate
+ */
+public class MissCache {
+  public static final int DEFAULT_SIZE = 8192;
+
+  private final int myMaxSize;
+  private final ConcurrentMap<String, Boolean> myNames = new ConcurrentHashMap<String, Boolean>();
+  private final AtomicInteger mySize = new AtomicInteger();
+
+  public MissCache(final int maxSize) {
+    myMaxSize = maxSize;
+  }
+
+  public boolean contains(@NotNull final String name) {
+    return myNames.containsKey(name);
+  }
+
+  public void add(@NotNull final String name) {
+    if (myNames.putIfAbsent(name, Boolean.TRUE) != null) return;
+
+    if (mySize.incrementAndGet() > myMaxSize) {
+      myNames.clear();
+      mySize.set(0);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "MissCache{" +
+            "size=" + mySize.get() +
+            '}';
+  }
+}
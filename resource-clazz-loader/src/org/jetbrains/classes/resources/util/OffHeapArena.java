@@ -0,0 +1,239 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps entry payloads in a few direct buffers out of the Java heap,
+ * every payload is a slice of a chunk. Chunks are freed on {@link #close()} once the last
+ * reader between {@link #acquire()} and {@link #release()} is done, an open stream is a reader
+ * until it is closed or read to the end. A payload is given out as a view only within that scope,
+ * otherwise it is copied to the heap, see {@link #share(ByteBuffer)}. All reads after close fail with IOException
+ */
+public class OffHeapArena implements Closeable {
+  public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+  private final int myChunkSize;
+  private final List<ByteBuffer> myChunks = new ArrayList<ByteBuffer>();
+  private ByteBuffer myChunk = null;
+  private long myAllocated = 0;
+  private volatile boolean myClosed = false;
+  private int myReaders = 0;
+  private final ThreadLocal<int[]> myHolds = new ThreadLocal<int[]>() {
+    @Override
+    protected int[] initialValue() {
+      return new int[1];
+    }
+  };
+
+  public OffHeapArena() {
+    this(DEFAULT_CHUNK_SIZE);
+  }
+
+  public OffHeapArena(final int chunkSize) {
+    myChunkSize = chunkSize;
+  }
+
+  /**
+   * Copies data into the arena
+   * @return a view of the copied data
+   */
+  @NotNull
+  public synchronized ByteBuffer allocate(@NotNull final byte[] data, final int offset, final int length) throws IOException {
+    checkOpen();
+
+    final ByteBuffer chunk;
+    if (length > myChunkSize / 4) {
+      //large payloads do not waste the tail of the current chunk
+      chunk = newChunk(length);
+    } else {
+      if (myChunk == null || myChunk.remaining() < length) {
+        myChunk = newChunk(myChunkSize);
+      }
+      chunk = myChunk;
+    }
+
+    final int position = chunk.position();
+    chunk.put(data, offset, length);
+    myAllocated += length;
+
+    final ByteBuffer view = chunk.duplicate();
+    view.position(position);
+    view.limit(position + length);
+    return view.slice();
+  }
+
+  @NotNull
+  private ByteBuffer newChunk(final int size) {
+    final ByteBuffer chunk = ByteBuffer.allocateDirect(size);
+    myChunks.add(chunk);
+    return chunk;
+  }
+
+  /**
+   * @return stream over an allocated payload, the stream fails once the arena is closed
+   */
+  @NotNull
+  public InputStream openStream(@NotNull final ByteBuffer data) throws IOException {
+    acquire();
+    return new ByteBufferInputStream(data) {
+      private boolean myHeld = true;
+
+      @Override
+      public int read() throws IOException {
+        checkHeld();
+        final int result = super.read();
+        if (result < 0) close();
+        return result;
+      }
+
+      @Override
+      public int read(@NotNull final byte[] b, final int off, final int len) throws IOException {
+        checkHeld();
+        final int result = super.read(b, off, len);
+        if (result < 0) close();
+        return result;
+      }
+
+      private void checkHeld() throws IOException {
+        if (!myHeld && available() > 0) throw new IOException("Stream is closed");
+      }
+
+      @Override
+      public void close() {
+        if (!myHeld) return;
+        myHeld = false;
+        release();
+      }
+    };
+  }
+
+  public void checkOpen() throws IOException {
+    if (myClosed) throw new IOException("Arena is closed");
+  }
+
+  /**
+   * Starts a read, chunks are not freed until the matching {@link #release()}
+   * @throws IOException if the arena is closed
+   */
+  public synchronized void acquire() throws IOException {
+    checkOpen();
+    myReaders++;
+    myHolds.get()[0]++;
+  }
+
+  public synchronized void release() {
+    myHolds.get()[0]--;
+    if (--myReaders == 0 && myClosed) freeChunks();
+  }
+
+  /**
+   * @return a view of an allocated payload that is valid until {@link #release()}
+   * if the current thread holds the arena, otherwise a heap copy of the payload
+   */
+  @NotNull
+  public ByteBuffer share(@NotNull final ByteBuffer data) throws IOException {
+    if (myHolds.get()[0] > 0) return data.duplicate();
+
+    final byte[] copy = new byte[data.remaining()];
+    acquire();
+    try {
+      data.duplicate().get(copy);
+    } finally {
+      release();
+    }
+    return ByteBuffer.wrap(copy);
+  }
+
+  public synchronized long getAllocatedBytes() {
+    return myAllocated;
+  }
+
+  /**
+   * Frees all chunks once there are no readers
+   */
+  public synchronized void close() {
+    if (myClosed) return;
+    myClosed = true;
+    if (myReaders == 0) freeChunks();
+  }
+
+  private void freeChunks() {
+    for (ByteBuffer chunk : myChunks) {
+      free(chunk);
+    }
+    myChunks.clear();
+    myChunk = null;
+  }
+
+  private static void free(@NotNull final ByteBuffer buffer) {
+    try {
+      if (UNSAFE != null && INVOKE_CLEANER != null) {
+        INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        return;
+      }
+
+      //before Java 9
+      final Method cleaner = buffer.getClass().getMethod("cleaner");
+      cleaner.setAccessible(true);
+      final Object c = cleaner.invoke(buffer);
+      if (c != null) c.getClass().getMethod("clean").invoke(c);
+    } catch (Exception e) {
+      //NOP, the buffer is freed by GC
+    }
+  }
+
+  @Nullable
+  private static final Object UNSAFE;
+  @Nullable
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      final Class<?> clazz = Class.forName("sun.misc.Unsafe");
+      invokeCleaner = clazz.getMethod("invokeCleaner", ByteBuffer.class);
+      final Field field = clazz.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      unsafe = field.get(null);
+    } catch (Exception e) {
+      invokeCleaner = null;
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "OffHeapArena{" +
+            "chunks=" + myChunks.size() + ", " +
+            "allocated=" + myAllocated +
+            '}';
+  }
+}
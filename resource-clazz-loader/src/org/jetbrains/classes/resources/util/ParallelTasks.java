@@ -0,0 +1,93 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks on a bounded pool of daemon threads.
+ * Results are returned in the order of the tasks, not in the order of completion
+ */
+public class ParallelTasks {
+  @NotNull
+  public static <T> List<T> run(@NotNull final List<? extends Callable<T>> tasks,
+                                final int parallelism) throws IOException {
+    final List<T> result = new ArrayList<T>(tasks.size());
+    final int threads = Math.min(parallelism, tasks.size());
+
+    if (threads <= 1) {
+      for (Callable<T> task : tasks) {
+        try {
+          result.add(task.call());
+        } catch (Exception e) {
+          throw rethrow(e);
+        }
+      }
+      return result;
+    }
+
+    final ExecutorService pool = Executors.newFixedThreadPool(threads, DAEMON_THREADS);
+    try {
+      final List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+      for (Callable<T> task : tasks) {
+        futures.add(pool.submit(task));
+      }
+
+      for (Future<T> future : futures) {
+        try {
+          result.add(future.get());
+        } catch (ExecutionException e) {
+          final Throwable cause = e.getCause();
+          if (cause instanceof Error) throw (Error) cause;
+          throw rethrow(cause instanceof Exception ? (Exception) cause : e);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for " + tasks.size() + " tasks");
+        }
+      }
+      return result;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @NotNull
+  private static IOException rethrow(@NotNull final Exception e) {
+    if (e instanceof IOException) return (IOException) e;
+    if (e instanceof RuntimeException) throw (RuntimeException) e;
+    return new IOException(e.getMessage(), e);
+  }
+
+  private static final ThreadFactory DAEMON_THREADS = new ThreadFactory() {
+    private final AtomicInteger myCount = new AtomicInteger();
+
+    @NotNull
+    @Override
+    public Thread newThread(@NotNull final Runnable r) {
+      final Thread thread = new Thread(r, "resource-classpath-" + myCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  };
+}
@@ -20,7 +20,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.util.zip.GZIPOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.*;
 
 /**
  * Created 26.07.13 13:25
@@ -65,20 +66,95 @@ public class Streams {
 
   @NotNull
   public static byte[] readFully(@NotNull final InputStream stream) throws IOException {
-    final ByteArrayOutputStream bos = new ByteArrayOutputStream(CACHE_SIZE);
-    copyStreams(new byte[CACHE_SIZE], stream, bos);
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(8192, stream.available()));
+    copyStreams(new byte[8192], stream, bos);
     return bos.toByteArray();
   }
 
+  /**
+   * Reads exactly {@code size} bytes and checks the stream has no more data
+   *
+   * @param stream stream
+   * @param size expected number of bytes
+   * @return read bytes
+   * @throws IOException on error or if stream size is not as expected
+   */
+  @NotNull
+  public static byte[] readExactly(@NotNull final InputStream stream, final int size) throws IOException {
+    final byte[] result = new byte[size];
+    int i = 0;
+    while(i < size) {
+      int read = stream.read(result, i, size - i);
+      if (read <= 0) throw new EOFException();
+      i += read;
+    }
+    if (stream.read() >= 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    return result;
+  }
+
   @NotNull
   public static byte[] gzip(@NotNull final byte[] data, int offset, int len) throws IOException {
-    final ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length);
-    final GZIPOutputStream gos = new GZIPOutputStream(bos);
+    return gzip(data, offset, len, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  @NotNull
+  public static byte[] gzip(@NotNull final byte[] data, int offset, int len, final int level) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream(len);
+    final GZIPOutputStream gos = new GZIPOutputStream(bos) {
+      {
+        def.setLevel(level);
+      }
+    };
     gos.write(data, offset, len);
     gos.close();
     return bos.toByteArray();
   }
 
+  /**
+   * @param method {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+   * @param raw data of a zip entry
+   * @return stream of the entry bytes
+   * @throws IOException on error
+   */
+  @NotNull
+  public static InputStream inflate(final int method, @NotNull final ByteBuffer raw) throws IOException {
+    if (method == ZipEntry.STORED) return new ByteBufferInputStream(raw);
+    if (method != ZipEntry.DEFLATED) throw new ZipException("Unsupported compression method: " + method);
+
+    return Inflaters.openStream(raw);
+  }
+
+  /**
+   * @param method {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+   * @param raw data of a zip entry
+   * @param size expected size of the entry
+   * @param crc expected CRC-32 of the entry
+   * @return the entry bytes
+   * @throws IOException on error or if size or crc does not match
+   */
+  @NotNull
+  public static byte[] inflate(final int method,
+                               @NotNull final ByteBuffer raw,
+                               final int size,
+                               final int crc) throws IOException {
+    final byte[] result;
+    final int actual;
+    if (method == ZipEntry.DEFLATED) {
+      result = new byte[size];
+      actual = Inflaters.inflate(raw, result, 0, size);
+    } else {
+      result = readExactly(inflate(method, raw), size);
+      final CRC32 checksum = new CRC32();
+      checksum.update(result);
+      actual = (int) checksum.getValue();
+    }
+
+    if (actual != crc) throw new ZipException("CRC mismatch");
+    return result;
+  }
+
   public static void close(@Nullable Closeable c) {
     if (c == null) return;
     try {
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.zip.*;
+
+/**
+ * Random access to entries of a .zip archive, that is entirely available in a buffer.
+ * Only the central directory is read on creation, entries are inflated on demand.
+ *
+ * Zip64 and encrypted archives are not supported
+ */
+public class ZipArchive {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int LOCAL_HEADER = 0x04034b50;
+  private static final int LOCAL_HEADER_SIZE = 30;
+  private static final int CENTRAL_HEADER = 0x02014b50;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+  private static final int END_HEADER = 0x06054b50;
+  private static final int END_HEADER_SIZE = 22;
+
+  private final ByteBuffer myData;
+  /**
+   * Names are decoded on demand, so that the archive does not
+   * keep a copy of every name that is already in an index
+   */
+  private final int[] myNameOffsets;
+  private final int[] myNameLengths;
+  private final int[] myMethods;
+  private final int[] myCrcs;
+  private final int[] myCompressedSizes;
+  private final int[] mySizes;
+  private final int[] myHeaderOffsets;
+
+  public ZipArchive(@NotNull final ByteBuffer data) throws IOException {
+    myData = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+    final int end = findEndHeader(myData);
+    final int count = myData.getShort(end + 10) & 0xFFFF;
+    final long cdOffset = myData.getInt(end + 16) & 0xFFFFFFFFL;
+    if (count == 0xFFFF || cdOffset == 0xFFFFFFFFL) throw new ZipException("Zip64 is not supported");
+
+    myNameOffsets = new int[count];
+    myNameLengths = new int[count];
+    myMethods = new int[count];
+    myCrcs = new int[count];
+    myCompressedSizes = new int[count];
+    mySizes = new int[count];
+    myHeaderOffsets = new int[count];
+
+    int pos = (int) cdOffset;
+    for (int i = 0; i < count; i++) {
+      if (pos < 0 || pos + CENTRAL_HEADER_SIZE > end || myData.getInt(pos) != CENTRAL_HEADER) {
+        throw new ZipException("Broken central directory");
+      }
+
+      final int flags = myData.getShort(pos + 8) & 0xFFFF;
+      if ((flags & 1) != 0) throw new ZipException("Encrypted entries are not supported");
+
+      myMethods[i] = myData.getShort(pos + 10) & 0xFFFF;
+      myCrcs[i] = myData.getInt(pos + 16);
+      myCompressedSizes[i] = checkSize(myData.getInt(pos + 20));
+      mySizes[i] = checkSize(myData.getInt(pos + 24));
+      myHeaderOffsets[i] = checkSize(myData.getInt(pos + 42));
+
+      final int nameLength = myData.getShort(pos + 28) & 0xFFFF;
+      final int extraLength = myData.getShort(pos + 30) & 0xFFFF;
+      final int commentLength = myData.getShort(pos + 32) & 0xFFFF;
+      final long next = (long) pos + CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+      if (next > end) throw new ZipException("Broken central directory");
+
+      myNameOffsets[i] = pos + CENTRAL_HEADER_SIZE;
+      myNameLengths[i] = nameLength;
+
+      pos = (int) next;
+    }
+  }
+
+  @NotNull
+  public static ZipArchive read(@NotNull final InputStream stream) throws IOException {
+    try {
+      return new ZipArchive(ByteBuffer.wrap(Streams.readFully(stream)));
+    } finally {
+      Streams.close(stream);
+    }
+  }
+
+  private static int findEndHeader(@NotNull final ByteBuffer data) throws ZipException {
+    final int limit = data.limit();
+    final int min = Math.max(0, limit - END_HEADER_SIZE - 0xFFFF);
+    for (int pos = limit - END_HEADER_SIZE; pos >= min; pos--) {
+      if (data.getInt(pos) == END_HEADER) return pos;
+    }
+    throw new ZipException("Failed to find the end of central directory");
+  }
+
+  private static int checkSize(final int value) throws ZipException {
+    if (value < 0) throw new ZipException("Entries over 2GB are not supported");
+    return value;
+  }
+
+  public int size() {
+    return myNameOffsets.length;
+  }
+
+  @NotNull
+  public String getName(final int i) {
+    final byte[] name = new byte[myNameLengths[i]];
+    final ByteBuffer nameBuffer = myData.duplicate();
+    nameBuffer.position(myNameOffsets[i]);
+    nameBuffer.get(name);
+    return new String(name, UTF_8);
+  }
+
+  /**
+   * @return index of the first entry with the name or -1
+   */
+  public int indexOf(@NotNull final String name) {
+    final byte[] bytes = name.getBytes(UTF_8);
+    for (int i = 0; i < myNameOffsets.length; i++) {
+      if (myNameLengths[i] != bytes.length) continue;
+
+      final int offset = myNameOffsets[i];
+      int j = 0;
+      while (j < bytes.length && myData.get(offset + j) == bytes[j]) j++;
+      if (j == bytes.length) return i;
+    }
+    return -1;
+  }
+
+  public boolean isDirectory(final int i) {
+    final int length = myNameLengths[i];
+    return length > 0 && myData.get(myNameOffsets[i] + length - 1) == '/';
+  }
+
+  public int getMethod(final int i) {
+    return myMethods[i];
+  }
+
+  public int getCrc(final int i) {
+    return myCrcs[i];
+  }
+
+  public int getSize(final int i) {
+    return mySizes[i];
+  }
+
+  public int getCompressedSize(final int i) {
+    return myCompressedSizes[i];
+  }
+
+  /**
+   * @return the entry data as it is stored in the archive, i.e. raw deflate or stored bytes
+   */
+  @NotNull
+  public ByteBuffer getRawData(final int i) throws IOException {
+    final int header = myHeaderOffsets[i];
+    if (header + LOCAL_HEADER_SIZE > myData.limit() || myData.getInt(header) != LOCAL_HEADER) {
+      throw new ZipException("Broken local header of " + getName(i));
+    }
+
+    final int start = header + LOCAL_HEADER_SIZE + (myData.getShort(header + 26) & 0xFFFF) + (myData.getShort(header + 28) & 0xFFFF);
+    final int end = start + myCompressedSizes[i];
+    if (end < start || end > myData.limit()) throw new ZipException("Broken entry " + getName(i));
+
+    final ByteBuffer raw = myData.duplicate();
+    raw.position(start);
+    raw.limit(end);
+    return raw.slice();
+  }
+
+  @NotNull
+  public InputStream getStream(final int i) throws IOException {
+    return Streams.inflate(myMethods[i], getRawData(i));
+  }
+
+  @NotNull
+  public byte[] getBytes(final int i) throws IOException {
+    return Streams.inflate(myMethods[i], getRawData(i), mySizes[i], myCrcs[i]);
+  }
+
+  @Override
+  public String toString() {
+    return "ZipArchive{" +
+            "entries=" + myNameOffsets.length + ", " +
+            "size=" + myData.limit() +
+            '}';
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.util.Streams;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.*;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+
+import static org.jetbrains.classes.resources.TestStreams.assertStreamsEqual;
+
+public class ClasspathSnapshotTest {
+  private static final List<File> DATA_3 = Arrays.asList(
+          new File("testData/data-3/j1.jar"),
+          new File("testData/data-3/j2.jar"),
+          new File("testData/data-3/j3.jar"));
+
+  @Test
+  public void should_open_saved_snapshot() throws IOException {
+    final File snapshot = tempFile();
+    Assert.assertNull(ClasspathSnapshot.open(snapshot, DATA_3));
+
+    ClasspathSnapshot.openOrCreate(snapshot, DATA_3);
+    final ResourceClasspath cp = ClasspathSnapshot.open(snapshot, DATA_3);
+    Assert.assertNotNull(cp);
+
+    final List<URL> result = new ArrayList<URL>();
+    for (Enumeration<URL> en = cp.getResources("foo.txt"); en.hasMoreElements(); ) result.add(en.nextElement());
+    Assert.assertEquals(result.size(), 3);
+
+    assertStreamsEqual(result.get(2).openStream(), new ByteArrayInputStream("1".getBytes("utf-8")));
+    assertStreamsEqual(result.get(1).openStream(), new ByteArrayInputStream("2 ".getBytes("utf-8")));
+    assertStreamsEqual(result.get(0).openStream(), new ByteArrayInputStream(" 3 ".getBytes("utf-8")));
+  }
+
+  @Test
+  public void should_load_testng_from_snapshot() throws Exception {
+    final File snapshot = tempFile();
+    final List<File> jars = Arrays.asList(new File("lib/testng/testng-6.8.jar"));
+    ClasspathSnapshot.openOrCreate(snapshot, jars);
+
+    final ResourceClasspath cp = ClasspathSnapshot.open(snapshot, jars);
+    Assert.assertNotNull(cp);
+
+    final ResourceClasspath expected = new ResourceClasspath();
+    expected.addResource(new FileResource(jars.get(0)));
+    assertStreamsEqual(expected.getResourceAsStream("org/testng/TestNG.class"), cp.getResourceAsStream("org/testng/TestNG.class"));
+
+    RunTestNG.callTestNGMain(new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, cp));
+  }
+
+  @Test
+  public void should_detect_stale_jars() throws IOException {
+    final File jar = tempFile();
+    copy(DATA_3.get(0), jar);
+
+    final File snapshot = tempFile();
+    ClasspathSnapshot.openOrCreate(snapshot, Arrays.asList(jar));
+    Assert.assertNull(ClasspathSnapshot.open(snapshot, DATA_3));
+
+    //same content, different mtime
+    Assert.assertTrue(jar.setLastModified(jar.lastModified() - 100000));
+    Assert.assertNotNull(ClasspathSnapshot.open(snapshot, Arrays.asList(jar)));
+
+    copy(DATA_3.get(1), jar);
+    Assert.assertNull(ClasspathSnapshot.open(snapshot, Arrays.asList(jar)));
+  }
+
+  @Test
+  public void should_store_mtime_of_touched_jars() throws IOException {
+    final File jar = tempFile();
+    copy(DATA_3.get(0), jar);
+
+    final File snapshot = tempFile();
+    ClasspathSnapshot.openOrCreate(snapshot, Arrays.asList(jar));
+
+    final long touched = jar.lastModified() - 100000;
+    Assert.assertTrue(jar.setLastModified(touched));
+    Assert.assertFalse(containsLong(snapshot, jar.lastModified()));
+    Assert.assertNotNull(ClasspathSnapshot.open(snapshot, Arrays.asList(jar)));
+    Assert.assertTrue(containsLong(snapshot, jar.lastModified()));
+    Assert.assertNotNull(ClasspathSnapshot.open(snapshot, Arrays.asList(jar)));
+  }
+
+  private static boolean containsLong(@NotNull final File file, final long value) throws IOException {
+    final byte[] bytes = Streams.readFully(new FileInputStream(file));
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    new DataOutputStream(expected).writeLong(value);
+    return new String(bytes, "iso-8859-1").contains(new String(expected.toByteArray(), "iso-8859-1"));
+  }
+
+  @Test
+  public void should_open_jars_if_snapshot_is_not_saved() throws IOException {
+    //the parent of the snapshot is a file, the directory could not be created
+    final File parent = File.createTempFile("snapshot", ".bin");
+    parent.deleteOnExit();
+    final File snapshot = new File(parent, "snapshot.bin");
+
+    final ResourceClasspath cp = ClasspathSnapshot.openOrCreate(snapshot, DATA_3);
+    Assert.assertFalse(snapshot.exists());
+    assertStreamsEqual(cp.getResourceAsStream("foo.txt"), new ByteArrayInputStream(" 3 ".getBytes("utf-8")));
+  }
+
+  @NotNull
+  private static File tempFile() throws IOException {
+    final File file = File.createTempFile("snapshot", ".bin");
+    Assert.assertTrue(file.delete());
+    file.deleteOnExit();
+    return file;
+  }
+
+  private static void copy(@NotNull final File from, @NotNull final File to) throws IOException {
+    final InputStream is = new FileInputStream(from);
+    final OutputStream os = new FileOutputStream(to);
+    try {
+      Streams.copyStreams(new byte[Streams.CACHE_SIZE], is, os);
+    } finally {
+      is.close();
+      os.close();
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.entry.BytesEntry;
+import org.jetbrains.classes.resources.entry.ResourceEntry;
+import org.jetbrains.classes.resources.index.EntryVisitor;
+import org.jetbrains.classes.resources.index.FrozenIndex;
+import org.jetbrains.classes.resources.index.PrefixIndex;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class FrozenIndexTest {
+  private static final String[] NAMES = {
+          "a", "a/b", "a/b/c.class", "a/b/d.class", "a/bc/d.class", "", "x//y", "x/", "META-INF/MANIFEST.MF",
+          "/a", "i18n/\u00e9t\u00e9.properties", "i18n/\u65e5\u672c.txt"
+  };
+
+  @NotNull
+  private static FrozenIndex freeze(@NotNull final Map<String, ResourceEntry> entries) throws IOException {
+    final PrefixIndex index = new PrefixIndex();
+    for (Map.Entry<String, ResourceEntry> e : entries.entrySet()) index.put(e.getKey(), e.getValue());
+
+    final FrozenIndex frozen = FrozenIndex.build(index);
+    Assert.assertNotNull(frozen);
+    return frozen;
+  }
+
+  @NotNull
+  private static Map<String, ResourceEntry> entries(@NotNull final String... names) throws IOException {
+    final Map<String, ResourceEntry> entries = new HashMap<String, ResourceEntry>();
+    for (String name : names) entries.put(name, new BytesEntry(name.getBytes("utf-8")));
+    return entries;
+  }
+
+  @Test
+  public void should_find_all_names() throws IOException {
+    final Map<String, ResourceEntry> expected = entries(NAMES);
+    final FrozenIndex index = freeze(expected);
+
+    Assert.assertEquals(index.size(), NAMES.length);
+    for (String name : NAMES) {
+      Assert.assertSame(index.get(name), expected.get(name), name);
+    }
+
+    Assert.assertNull(index.get("a/b/"));
+    Assert.assertNull(index.get("a/b/c"));
+    Assert.assertNull(index.get("a/x.class"));
+    Assert.assertNull(index.get("b"));
+    Assert.assertNull(index.get("//a"));
+    Assert.assertNull(index.get("i18n/\u00e9t\u00e9.propertie"));
+    Assert.assertNull(index.get("i18n/\u00e9t\u00e8.properties"));
+
+    final Map<String, ResourceEntry> visited = new HashMap<String, ResourceEntry>();
+    index.visit(new EntryVisitor() {
+      @Override
+      public void visit(@NotNull String name, @NotNull ResourceEntry entry) {
+        Assert.assertNull(visited.put(name, entry));
+      }
+    });
+    Assert.assertEquals(visited, expected);
+  }
+
+  @Test
+  public void should_find_packages() throws IOException {
+    final FrozenIndex index = freeze(entries(NAMES));
+
+    Assert.assertTrue(index.hasPackageOf("a/b/x.class", '/'));
+    Assert.assertTrue(index.hasPackageOf("a.b.X", '.'));
+    Assert.assertTrue(index.hasPackageOf("a.X", '.'));
+    Assert.assertTrue(index.hasPackageOf("X", '.'));
+    Assert.assertTrue(index.hasPackageOf("META-INF.X", '.'));
+    Assert.assertFalse(index.hasPackageOf("a/b/c.class/x", '/'));
+    Assert.assertFalse(index.hasPackageOf("b.X", '.'));
+    Assert.assertFalse(index.hasPackageOf("x/y/z", '/'));
+    Assert.assertTrue(index.hasPackageOf("x//z", '/'));
+  }
+
+  @Test
+  public void should_find_many_names() throws IOException {
+    final Map<String, ResourceEntry> entries = new HashMap<String, ResourceEntry>();
+    for (int i = 0; i < 50000; i++) {
+      entries.put("org/p" + (i % 37) + "/C" + i + ".class", new BytesEntry(new byte[0]));
+    }
+    final FrozenIndex index = freeze(entries);
+
+    Assert.assertEquals(index.size(), 50000);
+    int rejected = 0;
+    for (int i = 0; i < 50000; i++) {
+      Assert.assertSame(index.get("org/p" + (i % 37) + "/C" + i + ".class"), entries.get("org/p" + (i % 37) + "/C" + i + ".class"));
+      Assert.assertNull(index.get("org/p" + (i % 37) + "/D" + i + ".class"));
+      Assert.assertTrue(index.mightContainClass("org.p" + (i % 37) + ".C" + i));
+      if (!index.mightContainClass("org.p" + (i % 37) + ".D" + i)) rejected++;
+    }
+    Assert.assertTrue(rejected > 49000, "rejected: " + rejected);
+  }
+
+  @Test
+  public void should_freeze_empty_index() throws IOException {
+    final FrozenIndex index = freeze(entries());
+    Assert.assertEquals(index.size(), 0);
+    Assert.assertNull(index.get("a"));
+    Assert.assertFalse(index.hasPackageOf("a.B", '.'));
+  }
+
+  @Test
+  public void should_replace_entry() throws IOException {
+    final Map<String, ResourceEntry> entries = entries("org/foo.txt");
+    final FrozenIndex index = freeze(entries);
+    final ResourceEntry e2 = new BytesEntry(new byte[2]);
+
+    Assert.assertSame(index.put("org/foo.txt", e2), entries.get("org/foo.txt"));
+    Assert.assertSame(index.get("org/foo.txt"), e2);
+    Assert.assertEquals(index.size(), 1);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void should_not_add_names() throws IOException {
+    freeze(entries("org/foo.txt")).put("org/bar.txt", new BytesEntry(new byte[1]));
+  }
+
+  @Test
+  public void should_load_classes_from_frozen_classpath() throws Exception {
+    final ResourceClasspath cp = new ResourceClasspath();
+    cp.addResource(new FileResource(new File("lib/testng/testng-6.8.jar")));
+    cp.compact();
+    Assert.assertTrue(cp.freeze());
+
+    RunTestNG.callTestNGMain(new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, cp));
+
+    try {
+      cp.addResource(new FileResource(new File("testData/data-3/j1.jar")));
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      //expected
+    }
+  }
+}
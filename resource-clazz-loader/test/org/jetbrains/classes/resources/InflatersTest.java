@@ -0,0 +1,136 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.classes.resources.util.Inflaters;
+import org.jetbrains.classes.resources.util.Streams;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipException;
+
+public class InflatersTest {
+  private static byte[] data(int sz) {
+    byte[] data = new byte[sz];
+    for (int i = 0; i < sz; i++) data[i] = (byte) (i * i / 13);
+    return data;
+  }
+
+  private static byte[] deflate(byte[] data) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final DeflaterOutputStream dos = new DeflaterOutputStream(bos, new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    dos.write(data);
+    dos.close();
+    return bos.toByteArray();
+  }
+
+  private static ByteBuffer direct(byte[] data) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+    buffer.put(data).flip();
+    return buffer;
+  }
+
+  @Test
+  public void should_inflate_exact_size() throws IOException {
+    for (int sz : new int[]{0, 1, 100, 8192, 100000}) {
+      final byte[] data = data(sz);
+      final byte[] raw = deflate(data);
+
+      final CRC32 crc = new CRC32();
+      crc.update(data);
+
+      for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.wrap(raw), direct(raw)}) {
+        for (int i = 0; i < 3; i++) {
+          final byte[] result = new byte[sz + 2];
+          Assert.assertEquals(Inflaters.inflate(buffer, result, 1, sz), (int) crc.getValue());
+          Assert.assertEquals(buffer.position(), 0);
+          Assert.assertEquals(result, concat(new byte[1], data, new byte[1]));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void should_fail_on_wrong_size() throws IOException {
+    final byte[] raw = deflate(data(1000));
+    for (int sz : new int[]{999, 1001}) {
+      try {
+        Inflaters.inflate(ByteBuffer.wrap(raw), new byte[sz], 0, sz);
+        Assert.fail();
+      } catch (ZipException e) {
+        //expected
+      }
+    }
+  }
+
+  @Test
+  public void should_gunzip() throws IOException {
+    final byte[] data = data(5000);
+    final byte[] gzip = Streams.gzip(data, 0, data.length);
+    Assert.assertEquals(Inflaters.gzipSize(ByteBuffer.wrap(gzip)), data.length);
+
+    for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.wrap(gzip), direct(gzip)}) {
+      final byte[] result = new byte[data.length];
+      Inflaters.gunzip(buffer, result, 0, data.length);
+      Assert.assertEquals(result, data);
+    }
+
+    try {
+      Inflaters.gunzip(ByteBuffer.wrap(gzip), new byte[data.length - 1], 0, data.length - 1);
+      Assert.fail();
+    } catch (ZipException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void should_gunzip_header_fields() throws IOException {
+    final byte[] data = data(300);
+    final byte[] gzip = Streams.gzip(data, 0, data.length);
+
+    //FEXTRA, FNAME, FCOMMENT and FHCRC
+    final byte[] header = {0x1f, (byte) 0x8b, 8, 30, 0, 0, 0, 0, 0, 0, 2, 0, 1, 2, 'a', 0, 'b', 'c', 0, 5, 5};
+    final byte[] full = concat(header, Arrays.copyOfRange(gzip, 10, gzip.length));
+
+    final byte[] result = new byte[data.length];
+    Inflaters.gunzip(ByteBuffer.wrap(full), result, 0, data.length);
+    Assert.assertEquals(result, data);
+  }
+
+  @Test
+  public void should_stream() throws IOException {
+    final byte[] data = data(100000);
+    final byte[] raw = deflate(data);
+    for (int i = 0; i < 20; i++) {
+      TestStreams.assertStreamsEqual(Inflaters.openStream(ByteBuffer.wrap(raw)), new ByteArrayInputStream(data));
+    }
+  }
+
+  private static byte[] concat(byte[]... arrays) {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    for (byte[] array : arrays) bos.write(array, 0, array.length);
+    return bos.toByteArray();
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.entry.ContentStore;
+import org.jetbrains.classes.resources.metrics.LatencyHistogram;
+import org.jetbrains.classes.resources.metrics.LoaderMetrics;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+public class LoaderMetricsTest {
+  @Test
+  public void should_count_lookups_and_defines() throws Exception {
+    final ResourceClasspath cp = new ResourceClasspath(Ingestion.EAGER);
+    cp.addResource(new FileResource(new File("lib/annotations/annotations.jar")));
+    final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_PARENT_FIRST, new ClassLoader(null) {}, cp);
+    final LoaderMetrics metrics = LoaderMetrics.register(rcl);
+
+    //super types of the class are loaded from the parent too
+    Assert.assertNotNull(rcl.loadClass(NotNull.class.getName()));
+    Assert.assertEquals(metrics.getClassesDefined(), 1);
+    Assert.assertEquals(metrics.getSelfHits(), 1);
+    Assert.assertEquals(metrics.getParentMisses(), 1);
+    Assert.assertEquals(metrics.getEntryReads(), 1);
+    Assert.assertEquals(metrics.getScanRescans(), 0);
+
+    metrics.reset();
+    Assert.assertNotNull(rcl.loadClass(String.class.getName()));
+    Assert.assertEquals(metrics.getParentHits(), 1);
+    Assert.assertEquals(metrics.getSelfHits() + metrics.getSelfMisses(), 0);
+
+    metrics.reset();
+    try {
+      rcl.loadClass("org.foo.Missing");
+      Assert.fail();
+    } catch (ClassNotFoundException e) {
+      //expected
+    }
+    Assert.assertEquals(metrics.getParentMisses(), 1);
+    Assert.assertEquals(metrics.getSelfMisses(), 1);
+    Assert.assertEquals(metrics.getClassesDefined(), 0);
+
+    final InputStream stream = rcl.getResourceAsStream("org/jetbrains/annotations/Nullable.class");
+    Assert.assertNotNull(stream);
+    stream.close();
+    Assert.assertEquals(metrics.getEntryReads(), 1);
+
+    final Map<String, Long> decoded = metrics.getDecodedBytes();
+    Assert.assertFalse(decoded.isEmpty(), decoded.toString());
+    for (Long bytes : decoded.values()) {
+      Assert.assertTrue(bytes > 0);
+    }
+
+    final ObjectName name = metrics.getObjectName();
+    Assert.assertNotNull(name);
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    Assert.assertEquals(server.getAttribute(name, "EntryReads"), 1L);
+    Assert.assertNotNull(server.getAttribute(name, "DecodedBytes"));
+
+    rcl.close();
+    Assert.assertFalse(server.isRegistered(name));
+    Assert.assertNull(metrics.getObjectName());
+  }
+
+  @Test
+  public void should_count_rescans() throws Exception {
+    final ResourceClasspath cp = new ResourceClasspath(Ingestion.EAGER);
+    cp.setReleaseDefinedClasses(true);
+    cp.addResource(new FileResource(new File("lib/annotations/annotations.jar")));
+    final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, new ClassLoader(null) {}, cp);
+    final LoaderMetrics metrics = new LoaderMetrics();
+    rcl.setListener(metrics);
+
+    final String name = NotNull.class.getName().replace('.', '/') + ".class";
+    Assert.assertNotNull(rcl.loadClass(NotNull.class.getName()));
+    Assert.assertEquals(metrics.getScanRescans(), 0);
+
+    //the payload is released, the bytes are read from the jar again
+    Assert.assertNotNull(cp.getClassResource(name));
+    Assert.assertEquals(metrics.getScanRescans(), 1);
+    Assert.assertEquals(metrics.getEntryReads(), 2);
+    Assert.assertTrue(metrics.getDecodedBytes().containsKey("ScanEntry"), metrics.toString());
+  }
+
+  @Test
+  public void should_add_listeners() throws Exception {
+    final ResourceClasspath cp = new ResourceClasspath();
+    final LoaderMetrics scans = new LoaderMetrics();
+    cp.setListener(scans);
+    cp.addResource(new FileResource(new File("lib/annotations/annotations.jar")));
+    Assert.assertEquals(scans.getResourcesScanned(), 1);
+    Assert.assertTrue(scans.getScannedEntries() > 0);
+
+    final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, new ClassLoader(null) {}, cp);
+    final LoaderMetrics first = new LoaderMetrics();
+    final LoaderMetrics second = new LoaderMetrics();
+    rcl.addListener(first);
+    rcl.addListener(second);
+
+    Assert.assertNotNull(rcl.loadClass(NotNull.class.getName()));
+    Assert.assertEquals(first.getClassesDefined(), 1);
+    Assert.assertEquals(second.getClassesDefined(), 1);
+    Assert.assertEquals(second.getEntryReads(), 1);
+  }
+
+  @Test
+  public void should_count_deduplicated_entries() throws Exception {
+    final File jar = new File("lib/annotations/annotations.jar");
+    final ResourceClasspath cp = new ResourceClasspath(Ingestion.EAGER);
+    cp.setContentStore(new ContentStore());
+    final LoaderMetrics metrics = new LoaderMetrics();
+    cp.setListener(metrics);
+
+    cp.addResource(new FileResource(jar));
+    Assert.assertEquals(metrics.getDeduplicatedEntries(), 0);
+
+    cp.addResource(new FileResource(jar));
+    Assert.assertEquals(metrics.getDeduplicatedEntries(), metrics.getScannedEntries() / 2);
+    Assert.assertTrue(metrics.getDeduplicatedBytes() > 0);
+  }
+
+  @Test
+  public void should_report_indexing_before_registration() throws Exception {
+    final File jar = new File("lib/annotations/annotations.jar");
+    final ContentStore store = new ContentStore();
+    final ResourceClasspath cp = new ResourceClasspath(Ingestion.EAGER);
+    cp.setContentStore(store);
+    cp.addResource(new FileResource(jar));
+    cp.addResource(new FileResource(jar));
+
+    final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, new ClassLoader(null) {}, cp);
+    final LoaderMetrics metrics = LoaderMetrics.register(rcl);
+    Assert.assertEquals(metrics.getResourcesScanned(), 2);
+    Assert.assertEquals(metrics.getDeduplicatedEntries(), metrics.getScannedEntries() / 2);
+    Assert.assertEquals(metrics.getStoreSharedEntries(), store.getSharedEntries());
+    Assert.assertEquals(metrics.getStoreSharedBytes(), store.getSharedBytes());
+
+    final ObjectName name = metrics.getObjectName();
+    Assert.assertNotNull(name);
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    Assert.assertEquals(server.getAttribute(name, "DeduplicatedEntries"), metrics.getDeduplicatedEntries());
+    Assert.assertEquals(server.getAttribute(name, "StoreSharedBytes"), store.getSharedBytes());
+
+    metrics.reset();
+    Assert.assertEquals(metrics.getResourcesScanned(), 0);
+    Assert.assertEquals(metrics.getDeduplicatedEntries(), 0);
+    rcl.close();
+  }
+
+  @Test
+  public void should_compute_percentiles() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    Assert.assertEquals(histogram.getPercentileNanos(99), 0);
+
+    for (int i = 0; i < 99; i++) histogram.add(100);
+    histogram.add(1000000);
+
+    Assert.assertEquals(histogram.getCount(), 100);
+    Assert.assertEquals(histogram.getTotalNanos(), 99 * 100 + 1000000);
+    Assert.assertEquals(histogram.getPercentileNanos(50), 127);
+    Assert.assertEquals(histogram.getPercentileNanos(99), 127);
+    Assert.assertTrue(histogram.getPercentileNanos(100) >= 1000000);
+
+    histogram.reset();
+    Assert.assertEquals(histogram.getCount(), 0);
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.entry.BytesEntry;
+import org.jetbrains.classes.resources.entry.ResourceEntry;
+import org.jetbrains.classes.resources.index.EntryVisitor;
+import org.jetbrains.classes.resources.index.PrefixIndex;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PrefixIndexTest {
+  private static final String[] NAMES = {
+          "a", "a/b", "a/b/c.class", "a/b/d.class", "a/bc/d.class", "", "x//y", "x/", "META-INF/MANIFEST.MF"
+  };
+
+  @Test
+  public void should_find_packages() {
+    final PrefixIndex index = new PrefixIndex();
+    for (String name : NAMES) index.put(name, new BytesEntry(new byte[0]));
+
+    Assert.assertTrue(index.hasPackageOf("a/b/x.class", '/'));
+    Assert.assertTrue(index.hasPackageOf("a.b.X", '.'));
+    Assert.assertTrue(index.hasPackageOf("a.X", '.'));
+    Assert.assertTrue(index.hasPackageOf("X", '.'));
+    Assert.assertTrue(index.hasPackageOf("META-INF.X", '.'));
+    Assert.assertFalse(index.hasPackageOf("a/b/c.class/x", '/'));
+    Assert.assertFalse(index.hasPackageOf("b.X", '.'));
+    Assert.assertFalse(index.hasPackageOf("x/y/z", '/'));
+    Assert.assertTrue(index.hasPackageOf("x//z", '/'));
+  }
+
+  @Test
+  public void should_trim() throws IOException {
+    final PrefixIndex index = new PrefixIndex();
+    for (int i = 0; i < 800; i++) index.put("a/b" + i, new BytesEntry(new byte[i % 7]));
+    for (int i = 0; i < 800; i++) index.put("a/b" + i, new BytesEntry(new byte[i % 5]));
+
+    index.trim();
+
+    Assert.assertEquals(index.size(), 800);
+    for (int i = 0; i < 800; i++) {
+      Assert.assertEquals(index.get("a/b" + i).getBytes().length, i % 5);
+    }
+    Assert.assertNull(index.get("a/b800"));
+  }
+
+  @Test
+  public void should_filter_missing_names() throws IOException {
+    final PrefixIndex index = new PrefixIndex();
+    //grows the filter a few times
+    for (int i = 0; i < 5000; i++) index.put("org/foo" + (i % 7) + "/Bar" + i + ".class", new BytesEntry(new byte[0]));
+
+    int rejected = 0;
+    for (int i = 0; i < 5000; i++) {
+      Assert.assertTrue(index.mightContainClass("org.foo" + (i % 7) + ".Bar" + i));
+      Assert.assertNotNull(index.get("org/foo" + (i % 7) + "/Bar" + i + ".class"));
+
+      if (!index.mightContainClass("org.foo" + (i % 7) + ".Baz" + i)) rejected++;
+      Assert.assertNull(index.get("org/foo" + (i % 7) + "/Baz" + i + ".class"));
+    }
+    Assert.assertTrue(rejected > 4900, "rejected: " + rejected);
+  }
+
+  @Test
+  public void should_find_all_names() throws IOException {
+    final PrefixIndex index = new PrefixIndex();
+    final Map<String, ResourceEntry> expected = new HashMap<String, ResourceEntry>();
+    for (String name : NAMES) {
+      final ResourceEntry e = new BytesEntry(name.getBytes("utf-8"));
+      Assert.assertNull(index.put(name, e));
+      expected.put(name, e);
+    }
+
+    Assert.assertEquals(index.size(), NAMES.length);
+    for (String name : NAMES) {
+      Assert.assertSame(index.get(name), expected.get(name));
+    }
+
+    Assert.assertNull(index.get("a/b/"));
+    Assert.assertNull(index.get("a/b/c"));
+    Assert.assertNull(index.get("a/x.class"));
+    Assert.assertNull(index.get("b"));
+
+    final Map<String, ResourceEntry> visited = new HashMap<String, ResourceEntry>();
+    index.visit(new EntryVisitor() {
+      @Override
+      public void visit(@NotNull String name, @NotNull ResourceEntry entry) {
+        Assert.assertNull(visited.put(name, entry));
+      }
+    });
+    Assert.assertEquals(visited, expected);
+  }
+
+  @Test
+  public void should_replace_entry() {
+    final PrefixIndex index = new PrefixIndex();
+    final ResourceEntry e1 = new BytesEntry(new byte[1]);
+    final ResourceEntry e2 = new BytesEntry(new byte[2]);
+
+    Assert.assertNull(index.put("org/foo.txt", e1));
+    Assert.assertSame(index.put("org/foo.txt", e2), e1);
+    Assert.assertSame(index.get("org/foo.txt"), e2);
+    Assert.assertEquals(index.size(), 1);
+  }
+
+  @Test
+  public void should_grow_children() {
+    final PrefixIndex index = new PrefixIndex();
+    for (int i = 0; i < 5000; i++) {
+      index.put("org/p" + (i % 17) + "/C" + i + ".class", new BytesEntry(new byte[0]));
+    }
+    Assert.assertEquals(index.size(), 5000);
+    for (int i = 0; i < 5000; i++) {
+      Assert.assertNotNull(index.get("org/p" + (i % 17) + "/C" + i + ".class"));
+      Assert.assertNull(index.get("org/p" + (i % 17) + "/D" + i + ".class"));
+    }
+  }
+}
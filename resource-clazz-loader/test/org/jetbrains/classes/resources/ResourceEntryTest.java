@@ -16,10 +16,8 @@
 
 package org.jetbrains.classes.resources;
 
-import org.jetbrains.classes.resources.entry.BytesEntry;
-import org.jetbrains.classes.resources.entry.GZipResourceEntry;
-import org.jetbrains.classes.resources.entry.ResourceEntry;
-import org.jetbrains.classes.resources.entry.SizedGZipResourceEntry;
+import org.jetbrains.classes.resources.entry.*;
+import org.jetbrains.classes.resources.util.OffHeapArena;
 import org.jetbrains.classes.resources.util.Streams;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
@@ -27,6 +25,8 @@ import org.testng.annotations.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Created 26.07.13 16:36
@@ -49,6 +49,7 @@ public class ResourceEntryTest {
     ResourceEntry e = new SizedGZipResourceEntry(data.length, Streams.gzip(data, 0, data.length));
 
     Assert.assertEquals(data, e.getBytes());
+    Assert.assertEquals(e.getSize(), data.length);
     TestStreams.assertStreamsEqual(new ByteArrayInputStream(data), e.getStream());
   }
 
@@ -60,9 +61,80 @@ public class ResourceEntryTest {
     ResourceEntry e = new GZipResourceEntry(Streams.gzip(data, 0, data.length));
 
     Assert.assertEquals(data, e.getBytes());
+    Assert.assertEquals(e.getSize(), data.length);
     TestStreams.assertStreamsEqual(new ByteArrayInputStream(data), e.getStream());
   }
 
+  @Test(dataProvider = "sizes")
+  public void testArena(int sz) throws IOException {
+    byte[] data = new byte[sz];
+    for (int i = 0; i < sz; i++) data[i] = (byte) (i * i - 1);
+    byte[] gzip = Streams.gzip(data, 0, data.length);
+
+    OffHeapArena arena = new OffHeapArena(1024);
+    ResourceEntry e = new BufferEntry(arena.allocate(data, 0, data.length), arena);
+    ResourceEntry g = new GZipBufferEntry(data.length, arena.allocate(gzip, 0, gzip.length), arena);
+
+    Assert.assertEquals(data, e.getBytes());
+    Assert.assertEquals(data, g.getBytes());
+    Assert.assertEquals(g.getSize(), data.length);
+    TestStreams.assertStreamsEqual(new ByteArrayInputStream(data), e.getStream());
+    TestStreams.assertStreamsEqual(new ByteArrayInputStream(data), g.getStream());
+
+    arena.close();
+    try {
+      e.getBuffer();
+      Assert.fail();
+    } catch (IOException ok) {
+      //expected
+    }
+  }
+
+  @Test
+  public void testArenaFreesAfterReaders() throws IOException {
+    byte[] data = new byte[]{1, 2, 3, 4, 5};
+
+    OffHeapArena arena = new OffHeapArena(1024);
+    ResourceEntry e = new BufferEntry(arena.allocate(data, 0, data.length), arena);
+
+    arena.acquire();
+    ByteBuffer view = e.getBuffer();
+    arena.close();
+
+    byte[] read = new byte[data.length];
+    view.get(read);
+    Assert.assertEquals(read, data);
+    arena.release();
+
+    try {
+      arena.acquire();
+      Assert.fail();
+    } catch (IOException ok) {
+      //expected
+    }
+  }
+
+  @Test
+  public void testArenaCopiesUnheldBuffers() throws IOException {
+    byte[] data = new byte[]{1, 2, 3, 4, 5};
+
+    OffHeapArena arena = new OffHeapArena(1024);
+    ResourceEntry e = new BufferEntry(arena.allocate(data, 0, data.length), arena);
+
+    ByteBuffer copy = e.getBuffer();
+    Assert.assertFalse(copy.isDirect());
+
+    //an open stream holds the arena until it is read to the end
+    InputStream stream = e.getStream();
+    arena.close();
+    Assert.assertEquals(stream.read(), 1);
+    TestStreams.assertStreamsEqual(new ByteArrayInputStream(new byte[]{2, 3, 4, 5}), stream);
+
+    byte[] read = new byte[data.length];
+    copy.get(read);
+    Assert.assertEquals(read, data);
+  }
+
   @Test(dataProvider = "sizes")
   public void testBytes(int sz) throws IOException {
     byte[] data = new byte[sz];
@@ -71,6 +143,7 @@ public class ResourceEntryTest {
     ResourceEntry e = new BytesEntry(data);
 
     Assert.assertEquals(data, e.getBytes());
+    Assert.assertEquals(e.getSize(), data.length);
     TestStreams.assertStreamsEqual(new ByteArrayInputStream(data), e.getStream());
   }
 }
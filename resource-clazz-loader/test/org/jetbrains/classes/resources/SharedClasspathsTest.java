@@ -0,0 +1,176 @@
+/*
+ * Copyright 2000-2026 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.classes.resources;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.metrics.LoaderMetrics;
+import org.jetbrains.classes.resources.util.Streams;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.*;
+import java.net.URL;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.jetbrains.classes.resources.TestStreams.assertStreamsEqual;
+
+public class SharedClasspathsTest {
+  private static final File J1 = new File("testData/data-3/j1.jar");
+  private static final File J2 = new File("testData/data-3/j2.jar");
+
+  @Test
+  public void should_share_classpath_of_same_resources() throws IOException {
+    final int size = SharedClasspaths.size();
+
+    final ResourceClasspath cp1 = SharedClasspaths.acquire(1, url(J1), url(J2));
+    final ResourceClasspath cp2 = SharedClasspaths.acquire(1, url(J1), url(J2));
+    final ResourceClasspath cp3 = SharedClasspaths.acquire(1, url(J2), url(J1));
+    Assert.assertSame(cp1, cp2);
+    Assert.assertNotSame(cp1, cp3);
+    Assert.assertEquals(SharedClasspaths.size(), size + 2);
+
+    assertStreamsEqual(cp1.getResourceAsStream("foo.txt"), new ByteArrayInputStream("1".getBytes("utf-8")));
+    assertStreamsEqual(cp3.getResourceAsStream("foo.txt"), new ByteArrayInputStream("2 ".getBytes("utf-8")));
+
+    cp1.close();
+    Assert.assertEquals(SharedClasspaths.size(), size + 2);
+    cp2.close();
+    cp3.close();
+    Assert.assertEquals(SharedClasspaths.size(), size);
+    Assert.assertNotSame(SharedClasspaths.acquire(1, url(J1), url(J2)), cp1);
+  }
+
+  @Test
+  public void should_not_share_changed_files() throws IOException {
+    final File jar = File.createTempFile("shared", ".jar");
+    jar.deleteOnExit();
+    copy(J1, jar);
+
+    final ResourceClasspath cp1 = SharedClasspaths.acquire(1, url(jar));
+    Assert.assertTrue(jar.setLastModified(jar.lastModified() - 100000));
+    final ResourceClasspath cp2 = SharedClasspaths.acquire(1, url(jar));
+    Assert.assertNotSame(cp1, cp2);
+
+    cp1.close();
+    cp2.close();
+  }
+
+  @Test
+  public void should_load_classes_after_other_loader_is_closed() throws Exception {
+    final URL testng = url(new File("lib/testng/testng-6.8.jar"));
+    final ResourceClassLoader first = (ResourceClassLoader) ResourceClassLoaderHelper.forSharedResources(ClassLoader.getSystemClassLoader().getParent(), testng);
+    final ResourceClassLoader second = (ResourceClassLoader) ResourceClassLoaderHelper.forSharedResources(ClassLoader.getSystemClassLoader().getParent(), testng);
+    Assert.assertSame(first.getClasspath(), second.getClasspath());
+
+    final Class<?> clazz = first.loadClass("org.testng.TestNG");
+    first.close();
+    //a repeated close does not release the classpath of the other loader
+    first.close();
+    Assert.assertNull(first.getResource("org/testng/TestNG.class"));
+
+    Assert.assertNotSame(second.loadClass("org.testng.TestNG"), clazz);
+    RunTestNG.callTestNGMain(second);
+    second.close();
+  }
+
+  @Test
+  public void should_not_share_classpath_by_default() throws Exception {
+    final ClassLoader parent = ClassLoader.getSystemClassLoader().getParent();
+    final ResourceClassLoader first = (ResourceClassLoader) ResourceClassLoaderHelper.forResources(parent, url(J1));
+    final ResourceClassLoader second = (ResourceClassLoader) ResourceClassLoaderHelper.forResources(parent, url(J1));
+    Assert.assertNotSame(first.getClasspath(), second.getClasspath());
+  }
+
+  @Test
+  public void should_report_reads_to_the_reading_loader() throws IOException {
+    final ResourceClassLoader first = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, SharedClasspaths.acquire(1, url(J1)));
+    final ResourceClassLoader second = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, SharedClasspaths.acquire(1, url(J1)));
+    final LoaderMetrics m1 = LoaderMetrics.register(first);
+    final LoaderMetrics m2 = LoaderMetrics.register(second);
+
+    assertStreamsEqual(first.getResourceAsStream("foo.txt"), new ByteArrayInputStream("1".getBytes("utf-8")));
+    Assert.assertEquals(m1.getEntryReads(), 1);
+    Assert.assertEquals(m2.getEntryReads(), 0);
+
+    assertStreamsEqual(second.getResourceAsStream("foo.txt"), new ByteArrayInputStream("1".getBytes("utf-8")));
+    Assert.assertEquals(m1.getEntryReads(), 1);
+    Assert.assertEquals(m2.getEntryReads(), 1);
+    first.close();
+    second.close();
+  }
+
+  @Test
+  public void should_forget_classpaths_that_are_not_closed() throws Exception {
+    final int size = SharedClasspaths.size();
+    ResourceClasspath cp = SharedClasspaths.acquire(1, url(J2));
+    Assert.assertEquals(SharedClasspaths.size(), size + 1);
+
+    //the classpath is dropped without close
+    cp = null;
+    for (int i = 0; i < 100 && SharedClasspaths.size() > size; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(SharedClasspaths.size(), size);
+  }
+
+  @Test
+  public void should_share_classpath_of_nested_jar_urls() throws Exception {
+    final File outer = File.createTempFile("shared", ".jar");
+    outer.deleteOnExit();
+    final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(outer));
+    zos.putNextEntry(new ZipEntry("lib/j1.jar"));
+    zos.write(Streams.readFully(new FileInputStream(J1)));
+    zos.close();
+
+    final URL nested = new URL("jar:" + outer.toURI() + "!/lib/j1.jar");
+    final ResourceClasspath cp1 = SharedClasspaths.acquire(1, nested);
+    final ResourceClasspath cp2 = SharedClasspaths.acquire(1, nested);
+    Assert.assertSame(cp1, cp2);
+    assertStreamsEqual(cp1.getResourceAsStream("foo.txt"), new ByteArrayInputStream("1".getBytes("utf-8")));
+    cp1.close();
+    cp2.close();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void should_not_add_resources_to_shared_classpath() throws IOException {
+    final ResourceClasspath cp = SharedClasspaths.acquire(1, url(J1));
+    try {
+      cp.addResource(new FileResource(J2));
+    } finally {
+      cp.close();
+    }
+  }
+
+  @NotNull
+  private static URL url(@NotNull final File file) throws IOException {
+    return file.toURI().toURL();
+  }
+
+  private static void copy(@NotNull final File from, @NotNull final File to) throws IOException {
+    final InputStream is = new FileInputStream(from);
+    final OutputStream os = new FileOutputStream(to);
+    try {
+      Streams.copyStreams(new byte[Streams.CACHE_SIZE], is, os);
+    } finally {
+      is.close();
+      os.close();
+    }
+  }
+}
@@ -17,20 +17,38 @@
 package org.jetbrains.classes.resources;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.classes.resources.entry.CompositeEntry;
+import org.jetbrains.classes.resources.entry.ContentStore;
+import org.jetbrains.classes.resources.entry.ReleasableEntry;
+import org.jetbrains.classes.resources.entry.ResourceEntry;
+import org.jetbrains.classes.resources.index.EntryVisitor;
+import org.jetbrains.classes.resources.metrics.LoaderMetrics;
+import org.jetbrains.classes.resources.util.OffHeapArena;
+import org.jetbrains.classes.resources.util.ParallelTasks;
+import org.jetbrains.classes.resources.util.Streams;
+import org.jetbrains.classes.resources.util.ZipArchive;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
-import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
 
 import static org.jetbrains.classes.resources.RunTestNG.callTestNGMain;
 import static org.jetbrains.classes.resources.TestStreams.assertStreamsEqual;
@@ -148,6 +166,724 @@ public class SmokeTests {
     callTestNGMain(rcl);
   }
 
+  @Test
+  public void should_run_testNG_from_arena() throws Exception {
+    final ResourceClasspath cp = new ResourceClasspath(new OffHeapArena());
+    cp.addResource(new FileResource(new File("lib/testng/testng-6.8.jar")));
+    final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, cp);
+
+    callTestNGMain(rcl);
+    rcl.close();
+
+    try {
+      cp.getResourceAsStream("org/testng/TestNG.class").read();
+      Assert.fail();
+    } catch (IOException e) {
+      //expected
+    }
+  }
+
+  @DataProvider(name = "ingestion")
+  public Object[][] ingestion() {
+    return new Object[][]{{Ingestion.LAZY}, {Ingestion.RAW}};
+  }
+
+  @Test(dataProvider = "ingestion")
+  public void should_run_testNG_ingested(@NotNull final Ingestion ingestion) throws Exception {
+    final ResourceClasspath cp = new ResourceClasspath(ingestion);
+    cp.addResource(new FileResource(new File("lib/testng/testng-6.8.jar")));
+
+    callTestNGMain(new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, cp));
+  }
+
+  @Test(dataProvider = "ingestion")
+  public void should_read_same_entries(@NotNull final Ingestion ingestion) throws IOException {
+    final ResourceClasspath eager = new ResourceClasspath();
+    eager.addResource(new FileResource(new File("lib/testng/testng-6.8.jar")));
+
+    final ResourceClasspath actual = new ResourceClasspath(ingestion);
+    //not a SeekableResource
+    actual.addResource(new ResourceHolder() {
+      @NotNull
+      @Override
+      public String getResourceName() {
+        return "testng";
+      }
+
+      @NotNull
+      @Override
+      public InputStream getContent() throws IOException {
+        return new FileInputStream("lib/testng/testng-6.8.jar");
+      }
+    });
+
+    final int[] count = {0};
+    eager.visitEntries(new EntryVisitor() {
+      @Override
+      public void visit(@NotNull String name, @NotNull ResourceEntry entry) throws IOException {
+        Assert.assertEquals(actual.getClassResource(name), entry.getBytes(), name);
+        assertStreamsEqual(actual.getResourceAsStream(name), entry.getStream());
+        count[0]++;
+      }
+    });
+    Assert.assertTrue(count[0] > 1000);
+  }
+
+  @DataProvider(name = "storage")
+  public Object[][] storage() {
+    final List<Object[]> result = new ArrayList<Object[]>();
+    for (StoragePresets policy : StoragePresets.values()) {
+      for (Ingestion ingestion : new Ingestion[]{Ingestion.EAGER, Ingestion.RAW}) {
+        result.add(new Object[]{ingestion, policy});
+      }
+    }
+    return result.toArray(new Object[result.size()][]);
+  }
+
+  @Test(dataProvider = "storage")
+  public void should_read_stored_entries(@NotNull final Ingestion ingestion,
+                                         @NotNull final StoragePolicy policy) throws IOException {
+    final ResourceClasspath eager = new ResourceClasspath();
+    eager.addResource(new FileResource(new File("lib/testng/testng-6.8.jar")));
+
+    final ResourceClasspath actual = new ResourceClasspath(ingestion, policy);
+    actual.addResource(new FileResource(new File("lib/testng/testng-6.8.jar")));
+
+    eager.visitEntries(new EntryVisitor() {
+      @Override
+      public void visit(@NotNull String name, @NotNull ResourceEntry entry) throws IOException {
+        Assert.assertEquals(actual.getClassResource(name), entry.getBytes(), name);
+      }
+    });
+  }
+
+  @Test
+  public void should_keep_compressed_entries_raw() throws IOException {
+    Assert.assertEquals(StoragePresets.MIN_MEMORY.getStorage("a.png", 100000, 99000), Storage.RAW);
+    Assert.assertEquals(StoragePresets.MIN_MEMORY.getStorage("a.txt", 100000, 99000), Storage.RAW);
+    Assert.assertEquals(StoragePresets.MIN_MEMORY.getStorage("a.txt", 100000, 10000).getKind(), Storage.Kind.DEFLATE);
+    Assert.assertEquals(StoragePresets.MIN_CPU.getStorage("a.class", 100000, 10000), Storage.KEEP);
+    Assert.assertEquals(StoragePresets.DEFAULT.getStorage("a.class", 1, 1), Storage.RAW);
+  }
+
+  @Test
+  public void should_release_defined_classes() throws Exception {
+    final ResourceClasspath eager = new ResourceClasspath();
+    eager.addResource(new FileResource(new File("lib/testng/testng-6.8.jar")));
+
+    final ResourceClasspath cp = new ResourceClasspath();
+    cp.setReleaseDefinedClasses(true);
+    cp.addResource(new FileResource(new File("lib/testng/testng-6.8.jar")));
+    cp.addResource(new FileResource(new File("lib/testng/testng-6.8.jar")));
+
+    final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, cp);
+    rcl.loadClass("org.testng.TestNG");
+
+    final ResourceEntry entry = ((CompositeEntry) cp.getEntry("org/testng/TestNG.class")).getEntry();
+    Assert.assertTrue(((ReleasableEntry) entry).isReleased());
+    Assert.assertEquals(cp.getClassResource("org/testng/TestNG.class"), eager.getClassResource("org/testng/TestNG.class"));
+
+    cp.compact();
+    callTestNGMain(rcl);
+
+    for (String name : new String[]{"org/testng/TestNG.class", "org/testng/Assert.class", "META-INF/MANIFEST.MF"}) {
+      final ResourceEntry actual = cp.getEntry(name);
+      Assert.assertNotNull(actual, name);
+      Assert.assertEquals(actual.getBytes(), eager.getClassResource(name), name);
+      //shadowed duplicates are released on compaction
+      Assert.assertEquals(actual.getNextEntry().getBytes(), eager.getClassResource(name), name);
+    }
+  }
+
+  @Test
+  public void should_load_classes_in_parallel() throws Exception {
+    final ResourceClasspath cp = new ResourceClasspath();
+    cp.addResource(new FileResource(new File("lib/testng/testng-6.8.jar")));
+    final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, cp);
+
+    final List<String> classes = new ArrayList<String>();
+    cp.visitEntries(new EntryVisitor() {
+      @Override
+      public void visit(@NotNull String name, @NotNull ResourceEntry entry) {
+        if (name.startsWith("org/testng/") && name.endsWith(".class")) {
+          classes.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+        }
+      }
+    });
+
+    final int threads = 8;
+    final List<Callable<List<Class<?>>>> tasks = new ArrayList<Callable<List<Class<?>>>>();
+    for (int t = 0; t < threads; t++) {
+      final int shift = t;
+      tasks.add(new Callable<List<Class<?>>>() {
+        @Override
+        public List<Class<?>> call() throws Exception {
+          final List<Class<?>> result = new ArrayList<Class<?>>();
+          for (int i = 0; i < classes.size(); i++) {
+            try {
+              result.add(rcl.loadClass(classes.get((i + shift * 97) % classes.size())));
+            } catch (NoClassDefFoundError e) {
+              //optional dependencies of testng, e.g. ant
+              result.add(null);
+            }
+          }
+          return result;
+        }
+      });
+    }
+
+    final List<List<Class<?>>> loaded = ParallelTasks.run(tasks, threads);
+    int count = 0;
+    for (int t = 0; t < threads; t++) {
+      for (int i = 0; i < classes.size(); i++) {
+        final Class<?> clazz = loaded.get(t).get(i);
+        if (clazz == null) continue;
+
+        count++;
+        Assert.assertSame(clazz.getClassLoader(), rcl);
+        Assert.assertSame(clazz, loaded.get(0).get((i + t * 97) % classes.size()));
+      }
+    }
+    Assert.assertTrue(count > threads * classes.size() / 2);
+  }
+
+  @Test
+  public void should_be_parallel_capable() throws Exception {
+    final Method method;
+    try {
+      method = ClassLoader.class.getMethod("isRegisteredAsParallelCapable");
+    } catch (NoSuchMethodException e) {
+      //Java 8 and older
+      return;
+    }
+
+    final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, new ResourceClasspath());
+    Assert.assertEquals(method.invoke(rcl), Boolean.TRUE);
+  }
+
+  @Test
+  public void should_cache_parent_misses() throws Exception {
+    final int[] calls = {0};
+    final ClassLoader parent = new ClassLoader(null) {
+      @Override
+      protected Class<?> findClass(String name) throws ClassNotFoundException {
+        calls[0]++;
+        throw new ClassNotFoundException(name);
+      }
+    };
+
+    final ResourceClasspath cp = new ResourceClasspath();
+    cp.addResource(new FileResource(new File("lib/annotations/annotations.jar")));
+    final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_PARENT_FIRST, parent, cp);
+    rcl.setCacheParentMisses(true);
+
+    Assert.assertFalse(cp.mightContainClass("org.foo.Missing"));
+    for (int i = 0; i < 3; i++) {
+      try {
+        rcl.loadClass("org.foo.Missing");
+        Assert.fail();
+      } catch (ClassNotFoundException e) {
+        //expected
+      }
+    }
+    Assert.assertEquals(calls[0], 1);
+
+    Assert.assertNotNull(rcl.loadClass(NotNull.class.getName()));
+    Assert.assertNull(rcl.getResource("org/foo/missing.txt"));
+    Assert.assertNull(rcl.getResourceAsStream("org/foo/missing.txt"));
+  }
+
+  @Test
+  public void should_route_by_package() throws Exception {
+    final ResourceClasspath cp = new ResourceClasspath();
+    cp.addResource(new FileResource(new File("lib/annotations/annotations.jar")));
+    Assert.assertTrue(cp.hasPackageOfClass(NotNull.class.getName()));
+    Assert.assertTrue(cp.hasPackageOfResource("org/jetbrains/annotations/Missing.class"));
+    Assert.assertFalse(cp.hasPackageOfClass("org.jetbrains.Missing"));
+    Assert.assertFalse(cp.hasPackageOfClass("java.lang.String"));
+
+    //the parent has annotations too
+    final ClassLoader parent = getClass().getClassLoader();
+    final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.ROUTE_BY_PACKAGE, parent, cp);
+    Assert.assertSame(rcl.loadClass(NotNull.class.getName()).getClassLoader(), rcl);
+    Assert.assertSame(rcl.loadClass(String.class.getName()), String.class);
+    Assert.assertSame(rcl.loadClass(getClass().getName()), getClass());
+    Assert.assertNotNull(rcl.getResource("/org/jetbrains/annotations/Nullable.class"));
+    Assert.assertNotNull(rcl.getResource("org/testng/TestNG.class"));
+
+    final ResourceClassLoader forced = new ResourceClassLoader(Delegation.ROUTE_BY_PACKAGE, parent, cp);
+    forced.setParentPackages("org.jetbrains");
+    Assert.assertSame(forced.loadClass(NotNull.class.getName()), NotNull.class);
+  }
+
+  @Test
+  public void should_record_and_prefetch_profile() throws Exception {
+    final ResourceClassLoader first = loadTestNG();
+    final ClassLoadProfile profile = new ClassLoadProfile();
+    first.recordProfile(profile);
+    callTestNGMain(first);
+    first.recordProfile(null);
+
+    final List<String> classes = profile.getClasses();
+    Assert.assertTrue(classes.size() > 100);
+    //a superclass is defined before the class
+    for (int i = 0; i < classes.size(); i++) {
+      final Class<?> superclass = first.loadClass(classes.get(i)).getSuperclass();
+      if (superclass == null || superclass.getClassLoader() != first) continue;
+      Assert.assertTrue(classes.indexOf(superclass.getName()) < i, classes.get(i));
+    }
+
+    final File file = File.createTempFile("profile", ".txt");
+    file.deleteOnExit();
+    profile.save(file);
+
+    final ClassLoadProfile loaded = ClassLoadProfile.load(file);
+    Assert.assertNotNull(loaded);
+    Assert.assertEquals(loaded.getClasses(), classes);
+
+    final ResourceClassLoader second = loadTestNG();
+    final ClassLoadProfile replayed = new ClassLoadProfile();
+    second.recordProfile(replayed);
+    loaded.prefetch(second).join();
+
+    Assert.assertEquals(new HashSet<String>(replayed.getClasses()), new HashSet<String>(classes));
+  }
+
+  @Test
+  public void should_detect_stale_profile() throws Exception {
+    final ClassLoadProfile profile = new ClassLoadProfile();
+    Assert.assertTrue(profile.add("org.testng.TestNG"));
+    Assert.assertTrue(profile.add("org.testng.NoSuchClass"));
+
+    final File file = File.createTempFile("profile", ".txt");
+    file.deleteOnExit();
+    profile.save(file);
+
+    final ClassLoadProfile loaded = ClassLoadProfile.load(file);
+    Assert.assertNotNull(loaded);
+    Assert.assertTrue(loaded.isLoaded());
+    Assert.assertFalse(loaded.isStale());
+
+    loaded.prefetch(loadTestNG()).join();
+    Assert.assertTrue(loaded.isStale());
+  }
+
+  @Test
+  public void should_stop_recording_profile() throws Exception {
+    final ResourceClassLoader capped = loadTestNG();
+    final ClassLoadProfile full = new ClassLoadProfile(10, ClassLoadProfile.DEFAULT_WINDOW_MILLIS);
+    capped.recordProfile(full);
+    callTestNGMain(capped);
+    Assert.assertEquals(full.getClasses().size(), 10);
+    Assert.assertTrue(full.isFinished());
+
+    final ResourceClassLoader finished = loadTestNG();
+    final ClassLoadProfile profile = new ClassLoadProfile();
+    finished.recordProfile(profile);
+    finished.loadClass("org.testng.TestNG");
+    profile.finish();
+    final int recorded = profile.getClasses().size();
+    callTestNGMain(finished);
+    Assert.assertEquals(profile.getClasses().size(), recorded);
+
+    final ResourceClassLoader late = loadTestNG();
+    final ClassLoadProfile window = new ClassLoadProfile(ClassLoadProfile.DEFAULT_MAX_CLASSES, -1);
+    late.recordProfile(window);
+    late.loadClass("org.testng.TestNG");
+    Assert.assertTrue(window.getClasses().isEmpty());
+  }
+
+  @Test
+  public void should_map_file_urls() throws Exception {
+    final File file = new File("lib/testng/testng-6.8.jar");
+    Assert.assertEquals(new URLResource(file.toURI().toURL()).getFile(), file.getAbsoluteFile());
+    Assert.assertNull(new URLResource(new URL("jar:" + file.toURI() + "!/")).getFile());
+    Assert.assertNull(new URLResource(new URL("http://localhost/testng.jar")).getFile());
+
+    final ResourceClasspath eager = new ResourceClasspath();
+    eager.addResource(new FileResource(file));
+
+    //a large jar is decoded in chunks
+    final ResourceClasspath actual = new ResourceClasspath();
+    actual.addResource(new URLResource(file.toURI().toURL()), 4);
+
+    final int[] count = {0};
+    eager.visitEntries(new EntryVisitor() {
+      @Override
+      public void visit(@NotNull String name, @NotNull ResourceEntry entry) throws IOException {
+        Assert.assertEquals(actual.getClassResource(name), entry.getBytes(), name);
+        count[0]++;
+      }
+    });
+    Assert.assertTrue(count[0] > 1000);
+  }
+
+  @Test
+  public void should_not_copy_stored_entries() throws IOException {
+    final byte[] data = "stored entry".getBytes("utf-8");
+    final CRC32 crc = new CRC32();
+    crc.update(data);
+
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final ZipOutputStream zos = new ZipOutputStream(bos);
+    final ZipEntry ze = new ZipEntry("a/b.txt");
+    ze.setMethod(ZipEntry.STORED);
+    ze.setSize(data.length);
+    ze.setCrc(crc.getValue());
+    zos.putNextEntry(ze);
+    zos.write(data);
+    zos.close();
+
+    final ResourceClasspath cp = new ResourceClasspath(Ingestion.LAZY);
+    cp.addResource(new BytesResource("stored.jar", bos.toByteArray()));
+
+    final ByteBuffer buffer = cp.getClassBuffer("a/b.txt");
+    Assert.assertTrue(buffer.isReadOnly());
+    final byte[] actual = new byte[buffer.remaining()];
+    buffer.get(actual);
+    Assert.assertEquals(actual, data);
+    assertStreamsEqual(cp.getResourceAsStream("a/b.txt"), new ByteArrayInputStream(data));
+  }
+
+  @Test
+  public void should_reuse_duplicate_urls() throws IOException {
+    final ResourceClasspath cp = new ResourceClasspath();
+    for (int i = 0; i < 5; i++) {
+      final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      final ZipOutputStream zos = new ZipOutputStream(bos);
+      zos.putNextEntry(new ZipEntry("META-INF/services/a.b.C"));
+      zos.write(("jar" + i).getBytes("utf-8"));
+      zos.putNextEntry(new ZipEntry("META-INF/services/other.txt"));
+      zos.write(("other" + i).getBytes("utf-8"));
+      zos.close();
+      cp.addResource(new BytesResource("jar" + i + ".jar", bos.toByteArray()));
+    }
+
+    final List<URL> urls = Collections.list(cp.getResources("META-INF/services/a.b.C"));
+    Assert.assertEquals(urls.size(), 5);
+    Assert.assertSame(cp.getResourceAsURL("META-INF/services/a.b.C"), urls.get(0));
+
+    final List<URL> again = Collections.list(cp.getResources("META-INF/services/a.b.C"));
+    for (int i = 0; i < urls.size(); i++) {
+      Assert.assertSame(again.get(i), urls.get(i));
+
+      //the last added jar is the first
+      final byte[] expected = ("jar" + (4 - i)).getBytes("utf-8");
+      final URLConnection connection = urls.get(i).openConnection();
+      Assert.assertEquals(connection.getContentLength(), expected.length);
+      Assert.assertEquals(connection.getHeaderField("Content-Length"), String.valueOf(expected.length));
+      assertStreamsEqual(connection.getInputStream(), new ByteArrayInputStream(expected));
+    }
+
+    //a URL relative to the resource URL keeps the index of the duplicate
+    final URL relative = new URL(urls.get(2), "other.txt");
+    assertStreamsEqual(relative.openStream(), new ByteArrayInputStream("other2".getBytes("utf-8")));
+    Assert.assertEquals(new HashSet<URL>(urls).size(), 5);
+
+    //a new duplicate is visible
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final ZipOutputStream zos = new ZipOutputStream(bos);
+    zos.putNextEntry(new ZipEntry("META-INF/services/a.b.C"));
+    zos.write("jar5".getBytes("utf-8"));
+    zos.close();
+    cp.addResource(new BytesResource("jar5.jar", bos.toByteArray()));
+    Assert.assertEquals(Collections.list(cp.getResources("META-INF/services/a.b.C")).size(), 6);
+    assertStreamsEqual(cp.getResourceAsURL("META-INF/services/a.b.C").openStream(), new ByteArrayInputStream("jar5".getBytes("utf-8")));
+  }
+
+  @Test
+  public void should_report_failed_defines() throws Exception {
+    final ResourceClasspath cp = new ResourceClasspath();
+    cp.addResource(new BytesResource("broken.jar", jarOf("a/Broken.class", "not a class".getBytes("utf-8"), false)));
+    final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, cp);
+
+    final List<String> failed = Collections.synchronizedList(new ArrayList<String>());
+    rcl.setListener(new LoaderMetrics() {
+      @Override
+      public void classDefineFailed(@NotNull final String name) {
+        failed.add(name);
+      }
+    });
+
+    try {
+      rcl.loadClass("a.Broken");
+      Assert.fail();
+    } catch (ClassFormatError e) {
+      //expected
+    }
+    Assert.assertEquals(failed, Arrays.asList("a.Broken"));
+  }
+
+  @NotNull
+  private static byte[] jarOf(@NotNull final String name,
+                              @NotNull final byte[] data,
+                              final boolean stored) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final ZipOutputStream zos = new ZipOutputStream(bos);
+    final ZipEntry ze = new ZipEntry(name);
+    if (stored) {
+      final CRC32 crc = new CRC32();
+      crc.update(data);
+      ze.setMethod(ZipEntry.STORED);
+      ze.setSize(data.length);
+      ze.setCrc(crc.getValue());
+    }
+    zos.putNextEntry(ze);
+    zos.write(data);
+    zos.close();
+    return bos.toByteArray();
+  }
+
+  @NotNull
+  private static File tempJar(@NotNull final byte[] data) throws IOException {
+    final File jar = File.createTempFile("nested", ".jar");
+    jar.deleteOnExit();
+    final FileOutputStream fos = new FileOutputStream(jar);
+    try {
+      fos.write(data);
+    } finally {
+      fos.close();
+    }
+    return jar;
+  }
+
+  @Test
+  public void should_scan_files_too_large_to_map() throws Exception {
+    final byte[] annotations = Streams.readFully(new FileInputStream("lib/annotations/annotations.jar"));
+    final File file = tempJar(annotations);
+    //a sparse tail after the archive, the stream scan stops at it
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(Integer.MAX_VALUE + 1024L);
+    } finally {
+      raf.close();
+    }
+
+    try {
+      new FileResource(file).getBuffer();
+      Assert.fail();
+    } catch (ZipException e) {
+      //expected
+    }
+
+    for (Ingestion ingestion : Ingestion.values()) {
+      final ResourceClasspath cp = new ResourceClasspath(ingestion);
+      cp.addResource(new URLResource(file.toURI().toURL()));
+      final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, cp);
+      Assert.assertNotNull(rcl.loadClass(NotNull.class.getName()));
+    }
+    Assert.assertTrue(file.delete());
+  }
+
+  @Test
+  public void should_share_equal_entries() throws Exception {
+    final byte[] annotations = Streams.readFully(new FileInputStream("lib/annotations/annotations.jar"));
+    final byte[] license = "the same license text".getBytes("utf-8");
+
+    for (Ingestion ingestion : new Ingestion[]{Ingestion.EAGER, Ingestion.RAW}) {
+      final ContentStore store = new ContentStore();
+      final ResourceClasspath cp1 = new ResourceClasspath(ingestion);
+      cp1.setContentStore(store);
+      cp1.addResource(new BytesResource("a.jar", annotations));
+      cp1.addResource(new BytesResource("l1.jar", jarOf("META-INF/LICENSE", license, false)));
+      //a stream without random access is scanned
+      cp1.addResource(new ResourceHolder() {
+        @NotNull
+        public String getResourceName() {
+          return "l2.jar";
+        }
+
+        @NotNull
+        public InputStream getContent() throws IOException {
+          return new ByteArrayInputStream(jarOf("shaded/LICENSE.txt", license, true));
+        }
+      });
+      Assert.assertSame(cp1.getEntry("shaded/LICENSE.txt"), cp1.getEntry("META-INF/LICENSE"));
+
+      final ResourceClasspath cp2 = new ResourceClasspath(ingestion);
+      cp2.setContentStore(store);
+      cp2.addResource(new FileResource(new File("lib/annotations/annotations.jar")));
+      final String clazz = "org/jetbrains/annotations/NotNull.class";
+      Assert.assertSame(cp2.getEntry(clazz), cp1.getEntry(clazz));
+      Assert.assertTrue(store.getSharedEntries() > 1, store.toString());
+
+      final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, cp2);
+      Assert.assertNotNull(rcl.loadClass(NotNull.class.getName()));
+      assertStreamsEqual(cp1.getResourceAsStream("shaded/LICENSE.txt"), new ByteArrayInputStream(license));
+    }
+  }
+
+  @Test
+  public void should_not_share_released_classes() throws Exception {
+    final File jar = new File("lib/annotations/annotations.jar");
+    final ContentStore store = new ContentStore();
+    final ResourceClasspath cp1 = new ResourceClasspath(Ingestion.EAGER);
+    cp1.setContentStore(store);
+    cp1.setReleaseDefinedClasses(true);
+    cp1.addResource(new FileResource(jar));
+
+    final ResourceClasspath cp2 = new ResourceClasspath(Ingestion.EAGER);
+    cp2.setContentStore(store);
+    cp2.addResource(new FileResource(jar));
+    final String clazz = "org/jetbrains/annotations/NotNull.class";
+    Assert.assertNotSame(cp2.getEntry(clazz), cp1.getEntry(clazz));
+    Assert.assertSame(cp2.getEntry("META-INF/MANIFEST.MF"), cp1.getEntry("META-INF/MANIFEST.MF"));
+  }
+
+  @Test
+  public void should_drop_unused_entries_from_store() throws Exception {
+    final ContentStore store = new ContentStore();
+    ResourceClasspath cp = new ResourceClasspath(Ingestion.EAGER);
+    cp.setContentStore(store);
+    cp.addResource(new FileResource(new File("lib/annotations/annotations.jar")));
+    Assert.assertTrue(store.size() > 0);
+
+    cp = null;
+    for (int i = 0; i < 100 && store.size() > 0; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(store.size(), 0);
+  }
+
+  @Test
+  public void should_index_nested_jars() throws Exception {
+    final byte[] annotations = Streams.readFully(new FileInputStream("lib/annotations/annotations.jar"));
+
+    for (boolean stored : new boolean[]{true, false}) {
+      //annotations.jar inside of outer.jar inside of the file
+      final byte[] outer = jarOf("lib/annotations.jar", annotations, stored);
+      final File file = tempJar(jarOf("outer.jar", outer, stored));
+
+      final NestedResource nested = new NestedResource(new NestedResource(new FileResource(file), "outer.jar"), "lib/annotations.jar");
+      Assert.assertEquals(nested.getResourceName(), file.getPath() + "!/outer.jar!/lib/annotations.jar");
+      //a stored jar is a view of the mapped file
+      Assert.assertEquals(nested.getBuffer().isDirect(), stored);
+      Assert.assertEquals(nested.getBuffer().remaining(), annotations.length);
+
+      for (Ingestion ingestion : Ingestion.values()) {
+        final ResourceClasspath cp = new ResourceClasspath(ingestion);
+        cp.addResource(nested);
+        final ResourceClassLoader rcl = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, cp);
+        Assert.assertNotNull(rcl.loadClass(NotNull.class.getName()));
+      }
+
+      try {
+        new NestedResource(new FileResource(file), "missing.jar").getBuffer();
+        Assert.fail();
+      } catch (FileNotFoundException e) {
+        //expected
+      }
+    }
+  }
+
+  @Test
+  public void should_read_classloader_resources_once() throws Exception {
+    final byte[] annotations = Streams.readFully(new FileInputStream("lib/annotations/annotations.jar"));
+    final File file = tempJar(jarOf("annotations.jar", annotations, true));
+
+    //a jar in a local jar is mapped
+    final URLClassLoader parent = new URLClassLoader(new URL[]{file.toURI().toURL()}, null);
+    final int[] lookups = {0};
+    final URLClassLoader counting = new URLClassLoader(new URL[]{file.toURI().toURL()}, null) {
+      @Override
+      public URL getResource(final String name) {
+        lookups[0]++;
+        return super.getResource(name);
+      }
+    };
+    final ClassloaderResource fromJar = new ClassloaderResource(counting, "annotations.jar");
+    Assert.assertTrue(fromJar.getBuffer().isDirect());
+    Assert.assertEquals(fromJar.getBuffer().remaining(), annotations.length);
+    //the jar is resolved once
+    Assert.assertEquals(lookups[0], 1);
+
+    //a jar of a resource classloader is the entry of its classpath
+    final ResourceClasspath outer = new ResourceClasspath(Ingestion.LAZY);
+    outer.addResource(new FileResource(file));
+    final ResourceClassLoader outerLoader = new ResourceClassLoader(Delegation.CALL_SELF_FIRST, null, outer);
+    final ClassloaderResource fromLoader = new ClassloaderResource(outerLoader, "annotations.jar");
+    Assert.assertTrue(fromLoader.getBuffer().isDirect());
+
+    final ResourceClasspath cp = new ResourceClasspath();
+    cp.addResource(fromLoader);
+    Assert.assertNotNull(new ResourceClassLoader(Delegation.CALL_SELF_FIRST, outerLoader, cp).loadClass(NotNull.class.getName()));
+
+    //a jar with a launcher stub is not seekable, it is read as a stream
+    final byte[] stub = "#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes("utf-8");
+    final byte[] jar = jarOf("annotations.jar", annotations, true);
+    final byte[] stubbed = new byte[stub.length + jar.length];
+    System.arraycopy(stub, 0, stubbed, 0, stub.length);
+    System.arraycopy(jar, 0, stubbed, stub.length, jar.length);
+    final URLClassLoader stubLoader = new URLClassLoader(new URL[]{tempJar(stubbed).toURI().toURL()}, null);
+    final ClassloaderResource fromStub = new ClassloaderResource(stubLoader, "annotations.jar");
+    Assert.assertEquals(fromStub.getBuffer().remaining(), annotations.length);
+
+    try {
+      new ClassloaderResource(parent, "missing.jar").getContent();
+      Assert.fail();
+    } catch (FileNotFoundException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void should_reject_broken_central_directory() throws Exception {
+    final byte[] data = "data".getBytes("utf-8");
+    final byte[] jar = jarOf("a.txt", data, true);
+    //the name length of the central header points past the end of the directory
+    for (int pos = jar.length - 22; pos >= 0; pos--) {
+      if (jar[pos] == 0x50 && jar[pos + 1] == 0x4b && jar[pos + 2] == 1 && jar[pos + 3] == 2) {
+        jar[pos + 28] = (byte) 0xFF;
+        jar[pos + 29] = (byte) 0x7F;
+        break;
+      }
+    }
+
+    try {
+      new ZipArchive(ByteBuffer.wrap(jar));
+      Assert.fail();
+    } catch (ZipException e) {
+      //expected
+    }
+
+    //the stream scan does not use the central directory
+    final ResourceClasspath cp = new ResourceClasspath(Ingestion.LAZY);
+    cp.addResource(new BytesResource("broken.jar", jar));
+    assertStreamsEqual(cp.getResourceAsStream("a.txt"), new ByteArrayInputStream(data));
+  }
+
+  @Test
+  public void should_seek_large_entries() throws IOException {
+    final byte[] big = new byte[3 * Streams.CACHE_SIZE];
+    for (int i = 0; i < big.length; i++) big[i] = (byte) (i * i / 7);
+
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final ZipOutputStream zos = new ZipOutputStream(bos);
+    zos.putNextEntry(new ZipEntry("a.txt"));
+    zos.write("a".getBytes("utf-8"));
+    zos.putNextEntry(new ZipEntry("data/big.bin"));
+    zos.write(big);
+    zos.close();
+
+    final File jar = File.createTempFile("big", ".jar");
+    jar.deleteOnExit();
+    final FileOutputStream fos = new FileOutputStream(jar);
+    fos.write(bos.toByteArray());
+    fos.close();
+
+    for (ResourceHolder holder : new ResourceHolder[]{new BytesResource("big.jar", bos.toByteArray()), new FileResource(jar)}) {
+      final ResourceClasspath cp = new ResourceClasspath();
+      cp.addResource(holder);
+
+      for (int i = 0; i < 2; i++) {
+        Assert.assertEquals(cp.getClassResource("data/big.bin"), big);
+        assertStreamsEqual(cp.getResourceAsStream("data/big.bin"), new ByteArrayInputStream(big));
+      }
+      assertStreamsEqual(cp.getResourceAsStream("a.txt"), new ByteArrayInputStream("a".getBytes("utf-8")));
+    }
+  }
+
   @Test
   public void should_run_resTestNG() throws Exception {
     //this test requires `test-data-1` artifact to be compiled
@@ -207,6 +943,105 @@ public class SmokeTests {
     assertStreamsEqual(result.get(0).openStream(), new ByteArrayInputStream(" 3 ".getBytes("utf-8")));
   }
 
+  @Test
+  public void should_fetch_duplicating_resources_parallel() throws IOException {
+    ResourceClasspath cp = new ResourceClasspath();
+    cp.addResources(Arrays.<ResourceHolder>asList(
+            new FileResource(new File("testData/data-3/j1.jar")),
+            new FileResource(new File("testData/data-3/j2.jar")),
+            new FileResource(new File("testData/data-3/j3.jar"))), 3);
+
+    ResourceClassLoader rcl = new ResourceClassLoader(
+            Delegation.CALL_SELF_FIRST,
+            null,
+            cp);
+
+    final List<URL> result = new ArrayList<URL>();
+    for (Enumeration<URL> en = rcl.getResources("foo.txt"); en.hasMoreElements(); ) result.add(en.nextElement());
+    Assert.assertEquals(result.size(), 3);
+
+    assertStreamsEqual(result.get(2).openStream(), new ByteArrayInputStream("1".getBytes("utf-8")));
+    assertStreamsEqual(result.get(1).openStream(), new ByteArrayInputStream("2 ".getBytes("utf-8")));
+    assertStreamsEqual(result.get(0).openStream(), new ByteArrayInputStream(" 3 ".getBytes("utf-8")));
+  }
+
+  @Test
+  public void should_update_resources_live() throws IOException {
+    final ResourceClasspath cp = new ResourceClasspath();
+    cp.enableLiveUpdates();
+    final FileResource j1 = new FileResource(new File("testData/data-3/j1.jar"));
+    final FileResource j2 = new FileResource(new File("testData/data-3/j2.jar"));
+    final FileResource j3 = new FileResource(new File("testData/data-3/j3.jar"));
+    cp.addResource(j1);
+    cp.addResources(Arrays.<ResourceHolder>asList(j2, j3), 2);
+    assertFoo(cp, " 3 ", "2 ", "1");
+
+    //the replacement keeps the place of j2
+    Assert.assertTrue(cp.replaceResource(j2.getResourceName(), new BytesResource("new.jar", jarOf("foo.txt", "new".getBytes("utf-8"), false))));
+    assertFoo(cp, " 3 ", "new", "1");
+
+    Assert.assertTrue(cp.removeResource(j3.getResourceName()));
+    assertFoo(cp, "new", "1");
+    Assert.assertFalse(cp.removeResource(j3.getResourceName()));
+    Assert.assertFalse(cp.replaceResource(j3.getResourceName(), j3));
+
+    Assert.assertTrue(cp.removeResource("new.jar"));
+    Assert.assertTrue(cp.removeResource(j1.getResourceName()));
+    Assert.assertNull(cp.findResourceURL("foo.txt"));
+    Assert.assertFalse(cp.hasPackageOfResource("foo.txt"));
+  }
+
+  private static void assertFoo(@NotNull final ResourceClasspath cp, @NotNull final String... expected) throws IOException {
+    final List<URL> result = Collections.list(cp.getResources("foo.txt"));
+    Assert.assertEquals(result.size(), expected.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertStreamsEqual(result.get(i).openStream(), new ByteArrayInputStream(expected[i].getBytes("utf-8")));
+    }
+    assertStreamsEqual(cp.getResourceAsStream("foo.txt"), new ByteArrayInputStream(expected[0].getBytes("utf-8")));
+  }
+
+  @Test
+  public void should_read_while_resources_are_replaced() throws Exception {
+    final ResourceClasspath cp = new ResourceClasspath();
+    cp.enableLiveUpdates();
+    cp.addResource(new FileResource(new File("lib/annotations/annotations.jar")));
+    final FileResource j1 = new FileResource(new File("testData/data-3/j1.jar"));
+    cp.addResource(j1);
+
+    final String clazz = "org/jetbrains/annotations/NotNull.class";
+    final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+    tasks.add(new Callable<Integer>() {
+      public Integer call() throws Exception {
+        for (int i = 0; i < 200; i++) {
+          Assert.assertTrue(cp.replaceResource(j1.getResourceName(), j1));
+        }
+        return 0;
+      }
+    });
+    for (int t = 0; t < 3; t++) {
+      tasks.add(new Callable<Integer>() {
+        public Integer call() throws Exception {
+          int reads = 0;
+          for (int i = 0; i < 2000; i++) {
+            //every snapshot has both resources
+            Assert.assertNotNull(cp.getClassBuffer(clazz));
+            Assert.assertEquals(Collections.list(cp.getResources("foo.txt")).size(), 1);
+            reads++;
+          }
+          return reads;
+        }
+      });
+    }
+    ParallelTasks.run(tasks, tasks.size());
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void should_not_remove_resources_without_live_updates() throws IOException {
+    final ResourceClasspath cp = new ResourceClasspath();
+    cp.addResource(new FileResource(new File("testData/data-3/j1.jar")));
+    cp.removeResource("testData/data-3/j1.jar");
+  }
+
   @Test(expectedExceptions = ClassNotFoundException.class)
   public void should_not_see_this_class() throws IOException, ClassNotFoundException, NoSuchMethodException, InvocationTargetException, IllegalAccessException {
     final ResourceClassLoader rcl = loadTestNG();